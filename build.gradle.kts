@@ -2,6 +2,7 @@ plugins {
     java
     id("org.springframework.boot") version "3.4.5"
     id("io.spring.dependency-management") version "1.1.7"
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 group = "PetProekt"
@@ -9,7 +10,7 @@ version = "0.0.1-SNAPSHOT"
 
 java {
     toolchain {
-        languageVersion = JavaLanguageVersion.of(17)
+        languageVersion = JavaLanguageVersion.of(21)
     }
 }
 
@@ -37,6 +38,11 @@ dependencies {
     implementation("org.springframework.boot:spring-boot-starter-data-jpa")
     implementation("org.springframework.boot:spring-boot-starter-security")
     implementation("org.springframework.boot:spring-boot-starter-web")
+    implementation("com.fasterxml.jackson.dataformat:jackson-dataformat-cbor")
+    implementation("com.fasterxml.jackson.dataformat:jackson-dataformat-smile")
+    implementation("org.springframework.boot:spring-boot-starter-actuator")
+    runtimeOnly("io.micrometer:micrometer-registry-prometheus")
+    implementation("com.github.ben-manes.caffeine:caffeine")
     compileOnly("org.projectlombok:lombok")
     runtimeOnly("org.postgresql:postgresql")
     annotationProcessor("org.projectlombok:lombok")
@@ -48,3 +54,40 @@ dependencies {
 tasks.withType<Test> {
     useJUnitPlatform()
 }
+
+// Нагрузочный прогон: поднимает приложение в том же процессе против локальной базы
+// (или работает с запущенным через baseUrl=...) и падает при регрессии относительно src/loadtest/baseline.json:
+// ./gradlew loadTest -PloadtestArgs="users=50 tasks=5000 rate=200 duration=60s"
+sourceSets {
+    create("loadtest") {
+        compileClasspath += sourceSets.main.get().output
+        runtimeClasspath += sourceSets.main.get().output
+    }
+}
+
+configurations["loadtestImplementation"].extendsFrom(configurations.implementation.get())
+configurations["loadtestRuntimeOnly"].extendsFrom(configurations.runtimeOnly.get())
+
+tasks.register<JavaExec>("loadTest") {
+    group = "verification"
+    description = "Boots the application, seeds data and runs the HTTP load mix with a latency regression gate"
+    workingDir = projectDir
+    classpath = sourceSets["loadtest"].runtimeClasspath
+    mainClass.set("petproekt.task_management_system.loadtest.LoadTestDriver")
+    args = (findProperty("loadtestArgs") as String? ?: "").split(" ").filter { it.isNotBlank() }
+}
+
+// Микробенчмарки: ./gradlew jmh, результаты в build/reports/jmh/results.json.
+// Отдельные бенчмарки: ./gradlew jmh -PjmhIncludes=JwtFilterBenchmark
+dependencies {
+    jmh("org.springframework:spring-test")
+}
+
+jmh {
+    resultFormat.set("JSON")
+    resultsFile.set(layout.buildDirectory.file("reports/jmh/results.json"))
+    humanOutputFile.set(layout.buildDirectory.file("reports/jmh/human.txt"))
+    (findProperty("jmhIncludes") as String?)?.let { includes.set(it.split(",")) }
+    // Фиксированная куча и сборщик, чтобы прогоны на одной машине были сравнимы между собой
+    jvmArgs.set(listOf("-Xms1g", "-Xmx1g", "-XX:+UseG1GC"))
+}
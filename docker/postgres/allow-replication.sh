@@ -0,0 +1,4 @@
+#!/bin/bash
+# Разрешает потоковую репликацию с любого адреса сети compose (только для локального стенда)
+set -e
+echo "host replication all all scram-sha-256" >> "$PGDATA/pg_hba.conf"
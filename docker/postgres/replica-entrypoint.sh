@@ -0,0 +1,13 @@
+#!/bin/bash
+# Реплика для локального стенда: при первом запуске копирует основную базу через pg_basebackup
+# и стартует в режиме hot standby (-R пишет standby.signal и primary_conninfo)
+set -e
+if [ ! -s "$PGDATA/PG_VERSION" ]; then
+  until gosu postgres pg_basebackup -h "$PRIMARY_HOST" -U "$POSTGRES_USER" -D "$PGDATA" -R -X stream; do
+    echo "Основная база недоступна, повтор через 2 секунды"
+    rm -rf "${PGDATA:?}"/*
+    sleep 2
+  done
+  chmod 700 "$PGDATA"
+fi
+exec gosu postgres postgres
@@ -0,0 +1,26 @@
+package petproekt.task_management_system.benchmark;
+
+import petproekt.task_management_system.config.JwtProperties;
+
+/**
+ * Общие настройки для бенчмарков, совпадающие с application.yml.
+ */
+final class BenchmarkFixtures {
+
+    // Фиксированное зерно: одинаковые входные данные в каждом прогоне и форке
+    static final long SEED = 42L;
+
+    private BenchmarkFixtures() {
+    }
+
+    static JwtProperties jwtProperties(boolean selfContained) {
+        JwtProperties properties = new JwtProperties();
+        properties.setAccessTokenSecret("benchmark-access-token-secret-0123456789abcdef0123456789abcdef");
+        properties.setRefreshTokenSecret("benchmark-refresh-token-secret-0123456789abcdef0123456789abcdef");
+        properties.setAccessTokenExpiration(3_600_000);
+        properties.setRefreshTokenExpiration(604_800_000);
+        properties.setSelfContainedAccessTokens(selfContained);
+        properties.setPersistAccessTokens(false);
+        return properties;
+    }
+}
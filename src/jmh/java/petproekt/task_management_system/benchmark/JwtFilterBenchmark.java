@@ -0,0 +1,83 @@
+package petproekt.task_management_system.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import petproekt.task_management_system.config.JwtProperties;
+import petproekt.task_management_system.security.AccessTokenDenyList;
+import petproekt.task_management_system.security.AuthenticatedUser;
+import petproekt.task_management_system.security.JwtFilter;
+import petproekt.task_management_system.security.JwtUtil;
+import petproekt.task_management_system.security.VerifiedTokenCache;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JwtFilter целиком на mock-запросе с самодостаточным access токеном: разбор заголовка,
+ * кэш проверенных токенов или проверка подписи, deny-list и заполнение SecurityContext.
+ * База не участвует: пользователь берётся из claims, deny-list пуст.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class JwtFilterBenchmark {
+
+    // true — повторный запрос с тем же токеном обслуживается из VerifiedTokenCache
+    @Param({"true", "false"})
+    public boolean verifiedCache;
+
+    private JwtFilter filter;
+    private String authorizationHeader;
+
+    @Setup
+    public void setUp() {
+        JwtProperties properties = BenchmarkFixtures.jwtProperties(true);
+        properties.getVerifiedCache().setEnabled(verifiedCache);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+        JwtUtil jwtUtil = new JwtUtil(properties, meterRegistry);
+        // Репозитории не нужны: deny-list читается из памяти, пользователь — из claims токена
+        AccessTokenDenyList denyList = new AccessTokenDenyList(null);
+        VerifiedTokenCache cache = new VerifiedTokenCache(properties, denyList);
+        filter = new JwtFilter(jwtUtil, null, cache, denyList, meterRegistry);
+
+        AuthenticatedUser user = new AuthenticatedUser(new UUID(BenchmarkFixtures.SEED, 1), "benchmark-user", Set.of("ROLE_USER"));
+        authorizationHeader = "Bearer " + jwtUtil.generateAccessToken(user);
+    }
+
+    @Benchmark
+    public Authentication authenticate() throws ServletException, IOException {
+        // Новый запрос на каждый вызов: OncePerRequestFilter помечает запрос атрибутом и второй раз его пропустит
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/tasks");
+        request.addHeader("Authorization", authorizationHeader);
+        FilterChain chain = new MockFilterChain();
+        try {
+            filter.doFilter(request, new MockHttpServletResponse(), chain);
+            return SecurityContextHolder.getContext().getAuthentication();
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+}
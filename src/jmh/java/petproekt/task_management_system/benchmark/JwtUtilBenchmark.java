@@ -0,0 +1,76 @@
+package petproekt.task_management_system.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import petproekt.task_management_system.enm.TokenType;
+import petproekt.task_management_system.security.AuthenticatedUser;
+import petproekt.task_management_system.security.JwtUtil;
+import petproekt.task_management_system.security.TokenVerification;
+
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Выпуск и проверка JWT: то, что выполняется на каждом логине, обновлении токена
+ * и на каждом запросе без попадания в кэш проверенных токенов.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class JwtUtilBenchmark {
+
+    private JwtUtil jwtUtil;
+    private AuthenticatedUser user;
+    private String accessToken;
+    private String refreshToken;
+    private String tamperedToken;
+
+    @Setup
+    public void setUp() {
+        jwtUtil = new JwtUtil(BenchmarkFixtures.jwtProperties(true), new SimpleMeterRegistry());
+        user = new AuthenticatedUser(new UUID(BenchmarkFixtures.SEED, 1), "benchmark-user", Set.of("ROLE_USER"));
+        accessToken = jwtUtil.generateAccessToken(user);
+        refreshToken = jwtUtil.generateToken(user.username(), TokenType.REFRESH);
+        // Та же длина, другая подпись: проверка доходит до сравнения HMAC
+        char last = accessToken.charAt(accessToken.length() - 1);
+        tamperedToken = accessToken.substring(0, accessToken.length() - 1) + (last == 'A' ? 'B' : 'A');
+    }
+
+    @Benchmark
+    public String generateRefreshToken() {
+        return jwtUtil.generateToken(user.username(), TokenType.REFRESH);
+    }
+
+    @Benchmark
+    public String generateAccessToken() {
+        return jwtUtil.generateAccessToken(user);
+    }
+
+    @Benchmark
+    public boolean validateAccessToken() {
+        return jwtUtil.validateToken(accessToken, TokenType.ACCESS);
+    }
+
+    @Benchmark
+    public boolean validateRefreshToken() {
+        return jwtUtil.validateToken(refreshToken, TokenType.REFRESH);
+    }
+
+    @Benchmark
+    public TokenVerification verifyTamperedToken() {
+        return jwtUtil.verify(tamperedToken, TokenType.ACCESS);
+    }
+}
@@ -0,0 +1,90 @@
+package petproekt.task_management_system.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import petproekt.task_management_system.dto.TaskDto;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Сериализация страницы задач в форматах ответа GET /tasks: JSON, Smile и CBOR, без сжатия и с gzip,
+ * как при server.compression. ObjectMapper'ы собираются так же, как в BinaryFormatsConfig.
+ * Размер ответа в байтах для каждого формата печатается один раз при подготовке прогона.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class ResponseFormatBenchmark {
+
+    private static final LocalDateTime CREATED_AT = LocalDateTime.of(2024, 1, 1, 9, 0);
+
+    @Param({"json", "smile", "cbor"})
+    public String format;
+
+    @Param({"10", "1000", "100000"})
+    public int size;
+
+    private ObjectWriter writer;
+    private List<TaskDto> tasks;
+
+    @Setup
+    public void setUp() throws IOException {
+        Jackson2ObjectMapperBuilder builder = switch (format) {
+            case "json" -> Jackson2ObjectMapperBuilder.json();
+            case "smile" -> Jackson2ObjectMapperBuilder.json().factory(new SmileFactory());
+            case "cbor" -> Jackson2ObjectMapperBuilder.json().factory(new CBORFactory());
+            default -> throw new IllegalArgumentException("Неизвестный формат: " + format);
+        };
+        writer = builder.build().writer();
+
+        Random random = new Random(BenchmarkFixtures.SEED);
+        tasks = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            UUID id = new UUID(random.nextLong(), random.nextLong());
+            tasks.add(new TaskDto(id, "Задача " + i,
+                    "Описание задачи " + i + " длиной примерно в одно предложение",
+                    random.nextBoolean(), CREATED_AT.plusSeconds(i), 0L));
+        }
+
+        System.out.printf("%n# Размер ответа: format=%s size=%d bytes=%d gzipBytes=%d%n",
+                format, size, serialize().length, serializeGzip().length);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return writer.writeValueAsBytes(tasks);
+    }
+
+    @Benchmark
+    public byte[] serializeGzip() throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(buffer)) {
+            writer.writeValue(gzip, tasks);
+        }
+        return buffer.toByteArray();
+    }
+}
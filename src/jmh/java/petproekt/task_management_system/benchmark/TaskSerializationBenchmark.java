@@ -0,0 +1,77 @@
+package petproekt.task_management_system.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import petproekt.task_management_system.dto.TaskDto;
+import petproekt.task_management_system.entity.Task;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сериализация списка задач в JSON, как в ответе GET /tasks: сущности Task и TaskDto,
+ * разного размера страницы. ObjectMapper собирается тем же билдером, что и в Spring Boot.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class TaskSerializationBenchmark {
+
+    private static final LocalDateTime CREATED_AT = LocalDateTime.of(2024, 1, 1, 9, 0);
+
+    @Param({"1", "100", "1000"})
+    public int size;
+
+    private ObjectWriter writer;
+    private List<Task> tasks;
+    private List<TaskDto> dtos;
+
+    @Setup
+    public void setUp() {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        writer = objectMapper.writer();
+
+        Random random = new Random(BenchmarkFixtures.SEED);
+        tasks = new ArrayList<>(size);
+        dtos = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            UUID id = new UUID(random.nextLong(), random.nextLong());
+            String title = "Задача " + i;
+            String description = "Описание задачи " + i + " длиной примерно в одно предложение";
+            boolean done = random.nextBoolean();
+            LocalDateTime createdAt = CREATED_AT.plusSeconds(i);
+            tasks.add(new Task(id, description, title, done, createdAt, 0L, null));
+            dtos.add(new TaskDto(id, title, description, done, createdAt, 0L));
+        }
+    }
+
+    @Benchmark
+    public byte[] serializeTasks() throws JsonProcessingException {
+        return writer.writeValueAsBytes(tasks);
+    }
+
+    @Benchmark
+    public byte[] serializeDtos() throws JsonProcessingException {
+        return writer.writeValueAsBytes(dtos);
+    }
+}
@@ -0,0 +1,62 @@
+package petproekt.task_management_system.benchmark;
+
+import org.mapstruct.factory.Mappers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import petproekt.task_management_system.dto.UserInfoDto;
+import petproekt.task_management_system.entity.Role;
+import petproekt.task_management_system.entity.UserApp;
+import petproekt.task_management_system.mapper.UserInfoMapper;
+
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Маппинг пользователя в ответ /api/users/id и маскировка хэша пароля.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class UserInfoMapperBenchmark {
+
+    // Хэш BCrypt стоимости 10: такой же длины, как в базе
+    private static final String ENCODED_PASSWORD = "$2a$10$N9qo8uLOickgx2ZMRZoMyeIjZAgcfl7p92ldGxad68LJZdL17lhWy";
+
+    private UserInfoMapper mapper;
+    private UserApp user;
+
+    @Setup
+    public void setUp() {
+        mapper = Mappers.getMapper(UserInfoMapper.class);
+        user = UserApp.builder()
+                .id(new UUID(BenchmarkFixtures.SEED, 1))
+                .username("benchmark-user")
+                .password(ENCODED_PASSWORD)
+                .roles(Set.of(
+                        Role.builder().id(1L).name("ROLE_USER").build(),
+                        Role.builder().id(2L).name("ROLE_ADMIN").build()))
+                .build();
+    }
+
+    @Benchmark
+    public UserInfoDto toUserInfoDto() {
+        return mapper.toUserInfoDto(user);
+    }
+
+    @Benchmark
+    public String maskPassword() {
+        return mapper.maskPassword(ENCODED_PASSWORD);
+    }
+}
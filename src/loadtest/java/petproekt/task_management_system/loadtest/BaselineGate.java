@@ -0,0 +1,69 @@
+package petproekt.task_management_system.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Сравнивает прогон с сохранённым базовым. Регрессия — когда отслеживаемый перцентиль операции
+ * вырос больше чем на threshold (доля) и больше чем на slackMs (чтобы шум в доли миллисекунды
+ * на быстрых операциях не валил сборку), или доля ошибок превысила maxErrorRate.
+ */
+final class BaselineGate {
+
+    static final List<String> TRACKED_PERCENTILES = List.of("p95Ms", "p99Ms");
+
+    private final double threshold;
+    private final double slackMs;
+    private final double maxErrorRate;
+
+    BaselineGate(double threshold, double slackMs, double maxErrorRate) {
+        this.threshold = threshold;
+        this.slackMs = slackMs;
+        this.maxErrorRate = maxErrorRate;
+    }
+
+    /**
+     * @param baseline базовый прогон
+     * @param run      текущий прогон
+     * @return описания регрессий; пустой список, если их нет
+     */
+    List<String> check(JsonNode baseline, JsonNode run) {
+        List<String> regressions = new ArrayList<>();
+        for (String setting : List.of("rate", "users", "tasks", "mix")) {
+            if (!baseline.path(setting).equals(run.path(setting))) {
+                System.out.printf("Внимание: %s отличается от базового прогона (%s против %s)%n",
+                        setting, run.path(setting), baseline.path(setting));
+            }
+        }
+
+        double droppedShare = run.path("dropped").asDouble() / Math.max(1, run.path("scheduled").asDouble());
+        if (droppedShare > maxErrorRate) {
+            regressions.add(String.format("генератор не успел отправить %.1f%% запросов: увеличьте maxInFlight или уменьшите rate",
+                    droppedShare * 100));
+        }
+
+        run.path("operations").fields().forEachRemaining(entry -> {
+            String operation = entry.getKey();
+            JsonNode current = entry.getValue();
+            if (current.path("errorRate").asDouble() > maxErrorRate) {
+                regressions.add(String.format("%s: доля ошибок %.2f%% больше допустимой %.2f%%",
+                        operation, current.path("errorRate").asDouble() * 100, maxErrorRate * 100));
+            }
+            JsonNode expected = baseline.path("operations").path(operation);
+            if (expected.isMissingNode()) {
+                return;
+            }
+            for (String percentile : TRACKED_PERCENTILES) {
+                double before = expected.path(percentile).asDouble();
+                double after = current.path(percentile).asDouble();
+                if (before > 0 && after > before * (1 + threshold) && after - before > slackMs) {
+                    regressions.add(String.format("%s: %s %.1f мс против базовых %.1f мс (+%.0f%%)",
+                            operation, percentile, after, before, (after / before - 1) * 100));
+                }
+            }
+        });
+        return regressions;
+    }
+}
@@ -0,0 +1,55 @@
+package petproekt.task_management_system.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * Задержки одной операции. Запись синхронизирована: при тысячах запросов в секунду
+ * это заметно дешевле самих HTTP-вызовов.
+ */
+final class LatencyRecorder {
+
+    private long[] latencies = new long[4096];
+    private int count;
+    private int errors;
+    private int rejected;
+
+    synchronized void record(long nanos, int status) {
+        if (status == 503) {
+            rejected++;
+        } else if (status < 200 || status >= 300) {
+            errors++;
+        }
+        if (count == latencies.length) {
+            latencies = Arrays.copyOf(latencies, count * 2);
+        }
+        latencies[count++] = nanos;
+    }
+
+    synchronized ObjectNode summary(ObjectMapper json, Duration duration) {
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        ObjectNode node = json.createObjectNode();
+        node.put("requests", count);
+        node.put("errors", errors);
+        node.put("rejected", rejected);
+        node.put("errorRate", count == 0 ? 0 : (errors + rejected) / (double) count);
+        node.put("throughput", count / (duration.toMillis() / 1000.0));
+        node.put("p50Ms", percentile(sorted, 0.50));
+        node.put("p95Ms", percentile(sorted, 0.95));
+        node.put("p99Ms", percentile(sorted, 0.99));
+        node.put("maxMs", count == 0 ? 0 : sorted[count - 1] / 1e6);
+        return node;
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(index, 0)] / 1e6;
+    }
+}
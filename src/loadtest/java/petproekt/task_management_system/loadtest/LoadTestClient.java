@@ -0,0 +1,150 @@
+package petproekt.task_management_system.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+
+/**
+ * HTTP-вызовы сценария. Каждый метод возвращает код ответа (-1 при сетевой ошибке)
+ * и обновляет состояние пользователя: токены после логина, id созданных и удалённых задач.
+ */
+final class LoadTestClient {
+
+    static final int NETWORK_ERROR = -1;
+
+    private final ObjectMapper json;
+    private final String baseUrl;
+    private final HttpClient http = HttpClient.newBuilder()
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    LoadTestClient(ObjectMapper json, String baseUrl) {
+        this.json = json;
+        this.baseUrl = baseUrl;
+    }
+
+    int register(VirtualUser user) {
+        return send(post("/auth/register", credentials(user)), false).status();
+    }
+
+    int login(VirtualUser user) {
+        Result result = send(post("/auth/login", credentials(user)), true);
+        if (result.ok()) {
+            user.accessToken = result.body().get("accessToken").asText();
+            user.refreshToken = result.body().get("refreshToken").asText();
+        }
+        return result.status();
+    }
+
+    int refresh(VirtualUser user) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/users/token/refresh"))
+                .timeout(Duration.ofSeconds(30))
+                .header("Authorization", "Bearer " + user.refreshToken)
+                .POST(HttpRequest.BodyPublishers.noBody())
+                .build();
+        Result result = send(request, true);
+        if (result.ok()) {
+            user.accessToken = result.body().get("accessToken").asText();
+            user.refreshToken = result.body().get("refreshToken").asText();
+        }
+        return result.status();
+    }
+
+    int listTasks(VirtualUser user) {
+        return send(authorized(user, HttpRequest.newBuilder(URI.create(baseUrl + "/tasks?limit=50")).GET()), false).status();
+    }
+
+    int createTask(VirtualUser user, String title) {
+        String body = write(Map.of("title", title, "description", "Нагрузочный тест", "done", false));
+        Result result = send(authorized(user, jsonPost("/tasks", body)), true);
+        if (result.ok()) {
+            user.taskIds.add(UUID.fromString(result.body().get("id").asText()));
+        }
+        return result.status();
+    }
+
+    int deleteTask(VirtualUser user, UUID taskId) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUrl + "/tasks/" + taskId)).DELETE();
+        return send(authorized(user, request), false).status();
+    }
+
+    /**
+     * Создаёт задачи пакетами через /tasks/batch (не больше 1000 операций в пакете).
+     */
+    int seedTasks(VirtualUser user, int count) {
+        int status = 200;
+        for (int offset = 0; offset < count && status == 200; offset += 1000) {
+            List<Map<String, Object>> creates = new ArrayList<>();
+            for (int i = offset; i < Math.min(count, offset + 1000); i++) {
+                creates.add(Map.of("title", "Задача " + i, "description", "Нагрузочный тест", "done", i % 3 == 0));
+            }
+            Result result = send(authorized(user, jsonPost("/tasks/batch", write(Map.of("create", creates)))), true);
+            if (result.ok()) {
+                result.body().get("created").forEach(task -> user.taskIds.add(UUID.fromString(task.get("id").asText())));
+            }
+            status = result.status();
+        }
+        return status;
+    }
+
+    private HttpRequest post(String path, String body) {
+        return jsonPost(path, body).timeout(Duration.ofSeconds(30)).build();
+    }
+
+    private HttpRequest.Builder jsonPost(String path, String body) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body));
+    }
+
+    private static HttpRequest authorized(VirtualUser user, HttpRequest.Builder request) {
+        return request.timeout(Duration.ofSeconds(30))
+                .header("Authorization", "Bearer " + user.accessToken)
+                .build();
+    }
+
+    private String credentials(VirtualUser user) {
+        return write(Map.of("username", user.username, "password", user.password));
+    }
+
+    private String write(Object value) {
+        try {
+            return json.writeValueAsString(value);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Result send(HttpRequest request, boolean parseBody) {
+        try {
+            HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+            boolean ok = response.statusCode() / 100 == 2;
+            JsonNode body = ok && parseBody ? json.readTree(response.body()) : null;
+            return new Result(response.statusCode(), body);
+        } catch (IOException e) {
+            return new Result(NETWORK_ERROR, null);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new Result(NETWORK_ERROR, null);
+        }
+    }
+
+    private record Result(int status, JsonNode body) {
+
+        boolean ok() {
+            return status / 100 == 2;
+        }
+    }
+}
@@ -0,0 +1,341 @@
+package petproekt.task_management_system.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import petproekt.task_management_system.TaskManagementSystemApplication;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Нагрузочный прогон: поднимает приложение в этом же процессе (или работает с уже запущенным
+ * по baseUrl), создаёт users пользователей и tasks задач, затем отправляет запросы с постоянной
+ * частотой rate по смеси mix. Модель открытая: запрос уходит по расписанию, не дожидаясь
+ * предыдущих, а задержка считается от запланированного момента, поэтому медленный сервер
+ * не снижает нагрузку на себя. Запросы сверх maxInFlight одновременно не отправляются
+ * и считаются как dropped.
+ *
+ * <p>Результаты копятся в out по меткам label; при наличии прогонов platform и virtual печатается
+ * их сравнение. Если есть файл baseline, прогон сравнивается с ним, и при регрессии процесс
+ * завершается с кодом 1 (задача Gradle падает). updateBaseline=true записывает прогон как базовый.
+ *
+ * <p>Параметры key=value: baseUrl, label, users, tasks, rate, duration, warmup, maxInFlight, mix,
+ * out, baseline, updateBaseline, threshold, slackMs, maxErrorRate.
+ */
+public final class LoadTestDriver {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final String PASSWORD = "load-test-password";
+
+    // Регистрация и логин упираются в пул BCrypt: при заполнении сидим не больше стольких параллельно
+    private static final int SEED_PARALLELISM = 8;
+
+    private final Map<String, String> options;
+    private final String runId = UUID.randomUUID().toString().substring(0, 8);
+    private final AtomicInteger registered = new AtomicInteger();
+    private final List<VirtualUser> users = new ArrayList<>();
+    private LoadTestClient client;
+
+    private LoadTestDriver(Map<String, String> options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq <= 0) {
+                throw new IllegalArgumentException("Ожидается key=value: " + arg);
+            }
+            options.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        System.exit(new LoadTestDriver(options).run());
+    }
+
+    private int run() throws Exception {
+        ConfigurableApplicationContext application = null;
+        String baseUrl = options.get("baseUrl");
+        if (baseUrl == null) {
+            application = SpringApplication.run(TaskManagementSystemApplication.class, "--server.port=0");
+            int port = ((WebServerApplicationContext) application).getWebServer().getPort();
+            baseUrl = "http://localhost:" + port;
+        }
+        try {
+            client = new LoadTestClient(JSON, baseUrl);
+            return execute();
+        } finally {
+            if (application != null) {
+                application.close();
+            }
+        }
+    }
+
+    private int execute() throws Exception {
+        String label = option("label", "platform");
+        int userCount = Integer.parseInt(option("users", "50"));
+        int taskCount = Integer.parseInt(option("tasks", "5000"));
+        double rate = Double.parseDouble(option("rate", "200"));
+        Duration duration = duration(option("duration", "60s"));
+        Duration warmup = duration(option("warmup", "15s"));
+        int maxInFlight = Integer.parseInt(option("maxInFlight", "1000"));
+        String mix = option("mix", "");
+        Map<Operation, Integer> weights = Operation.parseMix(mix);
+
+        seed(userCount, taskCount);
+
+        System.out.printf("Прогрев %s, затем %s при %.0f запросах в секунду (%s)%n", warmup, duration, rate, label);
+        runPhase(weights, warmup, rate, maxInFlight);
+        Phase phase = runPhase(weights, duration, rate, maxInFlight);
+
+        ObjectNode run = JSON.createObjectNode();
+        run.put("label", label);
+        run.put("rate", rate);
+        run.put("users", userCount);
+        run.put("tasks", taskCount);
+        run.put("mix", mix);
+        run.put("durationSeconds", duration.toSeconds());
+        run.put("scheduled", phase.scheduled());
+        run.put("dropped", phase.dropped());
+        ObjectNode operations = run.putObject("operations");
+        phase.recorders().forEach((operation, recorder) ->
+                operations.set(operation.label, recorder.summary(JSON, duration)));
+        System.out.println(JSON.writerWithDefaultPrettyPrinter().writeValueAsString(run));
+
+        printComparison(saveRun(Path.of(option("out", "build/reports/loadtest/results.json")), run));
+        return checkBaseline(run);
+    }
+
+    /**
+     * Регистрирует пользователей, логинит их и раскладывает между ними задачи.
+     */
+    private void seed(int userCount, int taskCount) throws InterruptedException, ExecutionException {
+        if (userCount < 1) {
+            throw new IllegalArgumentException("users должно быть больше нуля");
+        }
+        for (int i = 0; i < userCount; i++) {
+            users.add(new VirtualUser("loadtest-" + runId + "-" + i, PASSWORD));
+        }
+        Semaphore parallelism = new Semaphore(SEED_PARALLELISM);
+        List<Future<?>> seeded = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < userCount; i++) {
+                VirtualUser user = users.get(i);
+                int userTasks = taskCount / userCount + (i < taskCount % userCount ? 1 : 0);
+                seeded.add(executor.submit(() -> {
+                    parallelism.acquire();
+                    try {
+                        expectOk(retryWhileOverloaded(() -> client.register(user)), "регистрация " + user.username);
+                        expectOk(retryWhileOverloaded(() -> client.login(user)), "логин " + user.username);
+                        if (userTasks > 0) {
+                            expectOk(client.seedTasks(user, userTasks), "создание задач " + user.username);
+                        }
+                    } finally {
+                        parallelism.release();
+                    }
+                    return null;
+                }));
+            }
+        }
+        for (Future<?> future : seeded) {
+            // Пробрасывает первую ошибку заполнения: без данных прогон не имеет смысла
+            future.get();
+        }
+        System.out.printf("Создано %d пользователей и %d задач%n", userCount, taskCount);
+    }
+
+    private Phase runPhase(Map<Operation, Integer> weights, Duration duration, double rate, int maxInFlight) {
+        Map<Operation, LatencyRecorder> recorders = new EnumMap<>(Operation.class);
+        weights.keySet().forEach(operation -> recorders.put(operation, new LatencyRecorder()));
+        int totalWeight = weights.values().stream().mapToInt(Integer::intValue).sum();
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        if (rate <= 0) {
+            throw new IllegalArgumentException("rate должен быть больше нуля");
+        }
+        long interval = Math.max(1, (long) (1_000_000_000L / rate));
+        int scheduled = 0;
+        int dropped = 0;
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            long start = System.nanoTime();
+            long end = start + duration.toNanos();
+            for (long intendedStart = start; intendedStart < end; intendedStart += interval) {
+                long wait = intendedStart - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                scheduled++;
+                if (!inFlight.tryAcquire()) {
+                    dropped++;
+                    continue;
+                }
+                Operation operation = pick(weights, totalWeight);
+                long plannedAt = intendedStart;
+                executor.submit(() -> {
+                    try {
+                        int status = perform(operation);
+                        recorders.get(operation).record(System.nanoTime() - plannedAt, status);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+        }
+        return new Phase(recorders, scheduled, dropped);
+    }
+
+    private int perform(Operation operation) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        VirtualUser user = users.get(random.nextInt(users.size()));
+        return switch (operation) {
+            case LIST_TASKS -> client.listTasks(user);
+            case CREATE_TASK -> client.createTask(user, "Задача " + random.nextInt(1_000_000));
+            case DELETE_TASK -> {
+                UUID taskId = user.taskIds.pollFirst();
+                // Задачи пользователя кончились: удалять нечего, создаём взамен, чтобы не менять частоту
+                yield taskId == null ? client.createTask(user, "Задача взамен удалённой") : client.deleteTask(user, taskId);
+            }
+            case LOGIN -> withTokenLock(user, () -> client.login(user));
+            case REFRESH -> withTokenLock(user, () -> client.refresh(user));
+            case REGISTER -> client.register(new VirtualUser(
+                    "loadtest-" + runId + "-new-" + registered.incrementAndGet(), PASSWORD));
+        };
+    }
+
+    private static int withTokenLock(VirtualUser user, StatusCall call) {
+        user.tokenLock.lock();
+        try {
+            return call.execute();
+        } finally {
+            user.tokenLock.unlock();
+        }
+    }
+
+    private int checkBaseline(ObjectNode run) throws IOException {
+        Path baselineFile = Path.of(option("baseline", "src/loadtest/baseline.json"));
+        if (Boolean.parseBoolean(option("updateBaseline", "false"))) {
+            Files.createDirectories(baselineFile.toAbsolutePath().getParent());
+            JSON.writerWithDefaultPrettyPrinter().writeValue(baselineFile.toFile(), run);
+            System.out.println("Базовый прогон записан в " + baselineFile);
+            return 0;
+        }
+        if (!Files.exists(baselineFile)) {
+            System.out.println("Базового прогона " + baselineFile + " нет, сравнение пропущено (updateBaseline=true создаст его)");
+            return 0;
+        }
+
+        BaselineGate gate = new BaselineGate(
+                Double.parseDouble(option("threshold", "0.2")),
+                Double.parseDouble(option("slackMs", "2")),
+                Double.parseDouble(option("maxErrorRate", "0.01")));
+        List<String> regressions = gate.check(JSON.readTree(baselineFile.toFile()), run);
+        if (regressions.isEmpty()) {
+            System.out.println("Регрессий относительно " + baselineFile + " нет");
+            return 0;
+        }
+        System.out.println("Регрессии относительно " + baselineFile + ":");
+        regressions.forEach(regression -> System.out.println("  " + regression));
+        return 1;
+    }
+
+    private ArrayNode saveRun(Path out, ObjectNode run) throws IOException {
+        ArrayNode runs = Files.exists(out) ? (ArrayNode) JSON.readTree(out.toFile()) : JSON.createArrayNode();
+        for (int i = runs.size() - 1; i >= 0; i--) {
+            if (run.get("label").asText().equals(runs.get(i).path("label").asText())) {
+                runs.remove(i);
+            }
+        }
+        runs.add(run);
+        Files.createDirectories(out.toAbsolutePath().getParent());
+        JSON.writerWithDefaultPrettyPrinter().writeValue(out.toFile(), runs);
+        return runs;
+    }
+
+    private static void printComparison(ArrayNode runs) {
+        JsonNode platform = null;
+        JsonNode virtual = null;
+        for (JsonNode run : runs) {
+            switch (run.path("label").asText()) {
+                case "platform" -> platform = run;
+                case "virtual" -> virtual = run;
+                default -> {
+                }
+            }
+        }
+        if (platform == null || virtual == null) {
+            return;
+        }
+        System.out.printf("%n%-32s %14s %14s %12s %12s%n", "операция", "rps platform", "rps virtual", "p99 platform", "p99 virtual");
+        for (var it = platform.path("operations").fieldNames(); it.hasNext(); ) {
+            String name = it.next();
+            JsonNode p = platform.path("operations").path(name);
+            JsonNode v = virtual.path("operations").path(name);
+            System.out.printf("%-32s %14.1f %14.1f %10.1fms %10.1fms%n", name,
+                    p.path("throughput").asDouble(), v.path("throughput").asDouble(),
+                    p.path("p99Ms").asDouble(), v.path("p99Ms").asDouble());
+        }
+    }
+
+    private static Operation pick(Map<Operation, Integer> weights, int totalWeight) {
+        int point = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (Map.Entry<Operation, Integer> entry : weights.entrySet()) {
+            point -= entry.getValue();
+            if (point < 0) {
+                return entry.getKey();
+            }
+        }
+        throw new IllegalStateException("Пустая смесь операций");
+    }
+
+    // Логин и регистрация при заполненной очереди BCrypt отвечают 503: при заполнении базы это не ошибка
+    private static int retryWhileOverloaded(StatusCall call) throws InterruptedException {
+        int status = call.execute();
+        for (int attempt = 0; status == 503 && attempt < 20; attempt++) {
+            Thread.sleep(500);
+            status = call.execute();
+        }
+        return status;
+    }
+
+    private static void expectOk(int status, String step) {
+        if (status / 100 != 2) {
+            throw new IllegalStateException(step + ": HTTP " + status);
+        }
+    }
+
+    private static Duration duration(String value) {
+        return Duration.parse("PT" + value.toUpperCase());
+    }
+
+    private String option(String name, String defaultValue) {
+        return options.getOrDefault(name, defaultValue);
+    }
+
+    @FunctionalInterface
+    private interface StatusCall {
+        int execute();
+    }
+
+    private record Phase(Map<Operation, LatencyRecorder> recorders, int scheduled, int dropped) {
+    }
+}
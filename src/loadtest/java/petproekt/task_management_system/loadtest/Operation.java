@@ -0,0 +1,57 @@
+package petproekt.task_management_system.loadtest;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Операции нагрузочного сценария и их доли в смеси по умолчанию.
+ */
+enum Operation {
+    LIST_TASKS("list", "GET /tasks", 45),
+    CREATE_TASK("create", "POST /tasks", 15),
+    DELETE_TASK("delete", "DELETE /tasks/{id}", 10),
+    REFRESH("refresh", "POST /api/users/token/refresh", 15),
+    LOGIN("login", "POST /auth/login", 10),
+    REGISTER("register", "POST /auth/register", 5);
+
+    final String key;
+    final String label;
+    final int defaultWeight;
+
+    Operation(String key, String label, int defaultWeight) {
+        this.key = key;
+        this.label = label;
+        this.defaultWeight = defaultWeight;
+    }
+
+    /**
+     * Разбирает смесь вида {@code list:50,create:20,login:5}; неуказанные операции не выполняются.
+     * Пустая строка — смесь по умолчанию.
+     */
+    static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        if (mix == null || mix.isBlank()) {
+            for (Operation operation : values()) {
+                weights.put(operation, operation.defaultWeight);
+            }
+            return weights;
+        }
+        for (String part : mix.split(",")) {
+            String[] keyAndWeight = part.trim().split(":");
+            if (keyAndWeight.length != 2) {
+                throw new IllegalArgumentException("Ожидается операция:вес, получено " + part);
+            }
+            weights.put(byKey(keyAndWeight[0].trim()), Integer.parseInt(keyAndWeight[1].trim()));
+        }
+        return weights;
+    }
+
+    private static Operation byKey(String key) {
+        for (Operation operation : values()) {
+            if (operation.key.equals(key)) {
+                return operation;
+            }
+        }
+        throw new IllegalArgumentException("Неизвестная операция: " + key);
+    }
+}
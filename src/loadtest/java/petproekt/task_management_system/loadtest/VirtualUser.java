@@ -0,0 +1,26 @@
+package petproekt.task_management_system.loadtest;
+
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Пользователь сценария: учётные данные, текущие токены и id его задач.
+ */
+final class VirtualUser {
+
+    final String username;
+    final String password;
+    final ConcurrentLinkedDeque<UUID> taskIds = new ConcurrentLinkedDeque<>();
+
+    // Логин отзывает прежний refresh токен, поэтому логин и обновление одного пользователя не пересекаются
+    final ReentrantLock tokenLock = new ReentrantLock();
+
+    volatile String accessToken;
+    volatile String refreshToken;
+
+    VirtualUser(String username, String password) {
+        this.username = username;
+        this.password = password;
+    }
+}
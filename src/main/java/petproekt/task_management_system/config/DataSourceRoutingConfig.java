@@ -0,0 +1,93 @@
+package petproekt.task_management_system.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.liquibase.LiquibaseDataSource;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import petproekt.task_management_system.datasource.ReadWriteRoutingDataSource;
+import petproekt.task_management_system.datasource.ReadYourWritesTracker;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.sql.DataSource;
+
+/**
+ * Разделение чтения и записи между основной базой и репликами.
+ * Включается datasource-routing.enabled; без него DataSource настраивает Spring Boot как обычно.
+ * У каждого пула своё имя (primary, replica-1, ...), по нему в метриках hikaricp.* стоит тег pool.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "datasource-routing", name = "enabled", havingValue = "true")
+public class DataSourceRoutingConfig {
+
+    /**
+     * Основной пул из spring.datasource и spring.datasource.hikari. Liquibase работает только с ним.
+     */
+    @Bean
+    @LiquibaseDataSource
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties, MeterRegistry meterRegistry) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        dataSource.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+        return dataSource;
+    }
+
+    @Bean
+    public ReadWriteRoutingDataSource routingDataSource(HikariDataSource primaryDataSource,
+                                                        DataSourceRoutingProperties properties,
+                                                        MeterRegistry meterRegistry) {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        List<DataSourceRoutingProperties.Replica> replicaProperties = properties.getReplicas();
+        for (int i = 0; i < replicaProperties.size(); i++) {
+            String poolName = "replica-" + (i + 1);
+            replicas.put(poolName, replicaDataSource(poolName, replicaProperties.get(i), primaryDataSource, meterRegistry));
+        }
+        ReadYourWritesTracker readYourWrites = new ReadYourWritesTracker(
+                properties.getReadYourWritesWindow(), properties.getReadYourWritesMaxUsers());
+        return new ReadWriteRoutingDataSource(primaryDataSource, replicas, readYourWrites);
+    }
+
+    /**
+     * DataSource для JPA, JdbcTemplate и остального приложения. Ленивый прокси откладывает выбор
+     * пула до первого запроса, когда флаг readOnly транзакции уже выставлен.
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(ReadWriteRoutingDataSource routingDataSource) {
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    private static HikariDataSource replicaDataSource(String poolName,
+                                                      DataSourceRoutingProperties.Replica replica,
+                                                      HikariDataSource primary,
+                                                      MeterRegistry meterRegistry) {
+        // Таймауты и прочие настройки пула те же, что у основной базы
+        HikariConfig config = new HikariConfig();
+        primary.copyStateTo(config);
+        config.setPoolName(poolName);
+        config.setJdbcUrl(replica.getUrl());
+        if (replica.getUsername() != null) {
+            config.setUsername(replica.getUsername());
+        }
+        if (replica.getPassword() != null) {
+            config.setPassword(replica.getPassword());
+        }
+        if (replica.getMaximumPoolSize() != null) {
+            config.setMaximumPoolSize(replica.getMaximumPoolSize());
+            config.setMinimumIdle(Math.min(config.getMinimumIdle(), replica.getMaximumPoolSize()));
+        }
+        config.setReadOnly(true);
+        config.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+        return new HikariDataSource(config);
+    }
+}
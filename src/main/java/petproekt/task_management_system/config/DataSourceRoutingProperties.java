@@ -0,0 +1,63 @@
+package petproekt.task_management_system.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "datasource-routing")
+public class DataSourceRoutingProperties {
+
+    /**
+     * Направлять транзакции readOnly = true на реплики. Без реплик в списке ничего не меняется
+     */
+    private boolean enabled = false;
+
+    /**
+     * Сколько после записи чтения того же пользователя идут в основную базу,
+     * чтобы он видел свои изменения. Должно быть больше отставания реплик
+     */
+    private Duration readYourWritesWindow = Duration.ofSeconds(5);
+
+    /**
+     * Максимальное количество пользователей, для которых помнится последняя запись
+     */
+    private long readYourWritesMaxUsers = 100_000;
+
+    /**
+     * Реплики для чтения; запросы распределяются между ними по кругу
+     */
+    private List<Replica> replicas = new ArrayList<>();
+
+    @Getter
+    @Setter
+    public static class Replica {
+
+        /**
+         * JDBC URL реплики
+         */
+        private String url;
+
+        /**
+         * Пользователь; если не задан, берётся из spring.datasource
+         */
+        private String username;
+
+        /**
+         * Пароль; если не задан, берётся из spring.datasource
+         */
+        private String password;
+
+        /**
+         * Размер пула соединений реплики; если не задан, как у основной базы
+         */
+        private Integer maximumPoolSize;
+    }
+}
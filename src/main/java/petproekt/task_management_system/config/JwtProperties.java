@@ -30,4 +30,37 @@ public class JwtProperties {
      * Секрет для refresh токена (необязательно)
      */
     private String refreshTokenSecret;
+
+    /**
+     * Класть в access токен id и роли пользователя, чтобы запросы аутентифицировались без обращения к базе.
+     * Роли в уже выданном токене не меняются до его истечения.
+     */
+    private boolean selfContainedAccessTokens = true;
+
+    /**
+     * Сохранять каждый выданный access токен в user_tokens.
+     * Если выключено, access токены несут jti и в базу не пишутся; отозванные jti
+     * попадают в таблицу access_token_denylist до своего exp, и JwtFilter их отклоняет.
+     */
+    private boolean persistAccessTokens = true;
+
+    /**
+     * Кэш уже проверенных access токенов в JwtFilter
+     */
+    private VerifiedCache verifiedCache = new VerifiedCache();
+
+    @Getter
+    @Setter
+    public static class VerifiedCache {
+
+        /**
+         * Включает кэш проверенных токенов
+         */
+        private boolean enabled = true;
+
+        /**
+         * Максимальное количество токенов в кэше
+         */
+        private long maxSize = 10_000;
+    }
 }
@@ -0,0 +1,56 @@
+package petproekt.task_management_system.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "password-hashing")
+public class PasswordHashingProperties {
+
+    /**
+     * Количество потоков для BCrypt; по умолчанию — число ядер (хэширование упирается в CPU)
+     */
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Сколько запросов на хэширование может ждать в очереди; сверх этого логин и регистрация получают 503
+     */
+    private int queueCapacity = 100;
+
+    /**
+     * Значение заголовка Retry-After в ответе 503
+     */
+    private Duration retryAfter = Duration.ofSeconds(1);
+
+    /**
+     * Подбирать стоимость BCrypt при старте под {@link #targetHashTime} на текущем CPU.
+     * Если выключено, используется {@link #strength}
+     */
+    private boolean calibrate = true;
+
+    /**
+     * Желаемое время одного хэширования пароля
+     */
+    private Duration targetHashTime = Duration.ofMillis(250);
+
+    /**
+     * Стоимость BCrypt (log2 числа раундов), если калибровка выключена
+     */
+    private int strength = 10;
+
+    /**
+     * Нижняя граница стоимости при калибровке: ниже не опускаемся даже на быстром CPU
+     */
+    private int minStrength = 10;
+
+    /**
+     * Верхняя граница стоимости при калибровке
+     */
+    private int maxStrength = 14;
+}
@@ -0,0 +1,44 @@
+package petproekt.task_management_system.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "revocation-index")
+public class RevocationIndexProperties {
+
+    /**
+     * Включает индекс отозванных токенов в памяти процесса. Выключен по умолчанию.
+     * Только для развёртывания в один экземпляр: индекс не синхронизируется между процессами,
+     * и отзыв на одном экземпляре не будет виден другим.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Файл, в который отображается индекс
+     */
+    private Path file = Path.of("data", "revocation-index.bin");
+
+    /**
+     * Ожидаемое количество отозванных токенов (размер Bloom-фильтра и хэш-таблицы)
+     */
+    private int expectedEntries = 100_000;
+
+    /**
+     * Допустимая доля ложных срабатываний Bloom-фильтра
+     */
+    private double falsePositiveRate = 0.01;
+
+    /**
+     * Перестраивать индекс из user_tokens при старте, даже если файл уже есть.
+     * Если выключено, файл используется, только когда прошлый запуск закрыл его штатно;
+     * после падения процесса или ОС индекс всё равно перестраивается
+     */
+    private boolean rebuildOnStartup = true;
+}
@@ -10,6 +10,7 @@ import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import petproekt.task_management_system.security.BCryptWorkFactor;
 import petproekt.task_management_system.security.JwtFilter;
 
 @Configuration
@@ -28,6 +29,9 @@ public class SecurityConfig {
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers("/auth/**", "/swagger-ui/**", "/v3/api-docs/**","/api/users/**").permitAll()
+                        // Для Prometheus и проверок живости. Actuator слушает отдельный management.server.port,
+                        // который не публикуется наружу, поэтому анонимный доступ есть только из внутренней сети
+                        .requestMatchers("/actuator/health", "/actuator/health/**", "/actuator/prometheus").permitAll()
                         .anyRequest().authenticated()
                 )
                 .addFilterBefore(jwtFilter, UsernamePasswordAuthenticationFilter.class)
@@ -40,7 +44,7 @@ public class SecurityConfig {
     }
 
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(BCryptWorkFactor workFactor) {
+        return new BCryptPasswordEncoder(workFactor.strength());
     }
 }
@@ -0,0 +1,30 @@
+package petproekt.task_management_system.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "token-cleanup")
+public class TokenCleanupProperties {
+
+    /**
+     * Сколько строк удаляет один DELETE (каждая порция — отдельная короткая транзакция)
+     */
+    private int chunkSize = 5_000;
+
+    /**
+     * Сколько времени может занять один запуск очистки; остаток удалится в следующий запуск
+     */
+    private Duration timeBudget = Duration.ofSeconds(30);
+
+    /**
+     * На сколько дней вперёд создавать партиции, если user_tokens секционирована
+     */
+    private int partitionsAhead = 3;
+}
@@ -0,0 +1,58 @@
+package petproekt.task_management_system.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "token-write-behind")
+public class TokenWriteBehindProperties {
+
+    /**
+     * Сохранять новые токены в user_tokens фоновыми пакетами, а не в транзакции логина.
+     * Как и индекс отозванных токенов, рассчитано на один экземпляр приложения: ещё не записанные
+     * токены видны только процессу, который их выдал.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Сколько токенов может ждать записи; при заполненной очереди токен пишется сразу, в потоке запроса
+     */
+    private int queueCapacity = 10_000;
+
+    /**
+     * Максимум строк в одном пакете INSERT (одна транзакция)
+     */
+    private int batchSize = 500;
+
+    /**
+     * Сколько фоновый писатель ждёт новые токены, прежде чем записать неполный пакет
+     */
+    private Duration flushInterval = Duration.ofMillis(50);
+
+    /**
+     * Пауза перед повтором пакета, если база недоступна
+     */
+    private Duration retryDelay = Duration.ofSeconds(1);
+
+    /**
+     * Каталог журнала: токен попадает в журнал до ответа клиенту и после перезапуска дописывается в базу
+     */
+    private Path journalDir = Path.of("data", "token-journal");
+
+    /**
+     * Записей в одном файле журнала; файл удаляется, когда все его токены записаны в базу
+     */
+    private int journalSegmentRecords = 10_000;
+
+    /**
+     * fsync после каждой записи в журнал. Без него журнал переживает падение процесса, но не ОС
+     */
+    private boolean journalFsync = true;
+}
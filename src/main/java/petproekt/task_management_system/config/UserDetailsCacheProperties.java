@@ -0,0 +1,30 @@
+package petproekt.task_management_system.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "user-details-cache")
+public class UserDetailsCacheProperties {
+
+    /**
+     * Включает кэш UserDetails в CustomUserDetailsService
+     */
+    private boolean enabled = true;
+
+    /**
+     * Время жизни записи после загрузки из базы
+     */
+    private Duration ttl = Duration.ofMinutes(5);
+
+    /**
+     * Максимальное количество пользователей в кэше
+     */
+    private long maxSize = 10_000;
+}
@@ -6,54 +6,70 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import petproekt.task_management_system.config.PasswordHashingProperties;
 import petproekt.task_management_system.dto.AuthRequest;
-import petproekt.task_management_system.dto.AuthResponse;
 import petproekt.task_management_system.dto.RegisterRequest;
 import petproekt.task_management_system.exception.UserAlreadyExistsException;
 import petproekt.task_management_system.exception.UserNotFoundException;
 import petproekt.task_management_system.service.AuthService;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+
 @RestController
 @RequestMapping("/auth")
 @RequiredArgsConstructor
 public class AuthController {
 
     private final AuthService authService;
+    private final PasswordHashingProperties passwordHashingProperties;
 
     @Operation(summary = "Регистрация пользователя", description = "Создаёт нового пользователя с зашифрованным паролем")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Пользователь успешно зарегистрирован"),
-            @ApiResponse(responseCode = "400", description = "Пользователь с таким именем уже существует")
+            @ApiResponse(responseCode = "400", description = "Пользователь с таким именем уже существует"),
+            @ApiResponse(responseCode = "503", description = "Очередь хэширования паролей переполнена, повторите позже")
     })
     @PostMapping("/register")
-    public ResponseEntity<String> register(@Valid @RequestBody RegisterRequest request) {
-        try {
-            String result = authService.register(request);
-            return ResponseEntity.ok(result);
-        } catch (UserAlreadyExistsException e) {
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
-        }
+    public CompletableFuture<ResponseEntity<String>> register(@Valid @RequestBody RegisterRequest request) {
+        return authService.register(request)
+                .thenApply(ResponseEntity::ok)
+                .exceptionally(error -> {
+                    Throwable cause = unwrap(error);
+                    if (cause instanceof UserAlreadyExistsException) {
+                        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(cause.getMessage());
+                    }
+                    return overloadedOrRethrow(cause);
+                });
     }
 
     @Operation(summary = "Авторизация пользователя", description = "Аутентифицирует пользователя и возвращает JWT токены")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Аутентификация прошла успешно"),
-            @ApiResponse(responseCode = "401", description = "Неверное имя пользователя или пароль")
+            @ApiResponse(responseCode = "401", description = "Неверное имя пользователя или пароль"),
+            @ApiResponse(responseCode = "503", description = "Очередь хэширования паролей переполнена, повторите позже")
     })
     @PostMapping("/login")
-    public ResponseEntity<?> login(@Valid @RequestBody AuthRequest request) {
-        try {
-            AuthResponse authResponse = authService.login(request);
-            return ResponseEntity.ok(authResponse);
-        } catch (UserNotFoundException | org.springframework.security.core.AuthenticationException e) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Неверное имя пользователя или пароль");
-        }
+    public CompletableFuture<ResponseEntity<?>> login(@Valid @RequestBody AuthRequest request) {
+        return authService.login(request)
+                .<ResponseEntity<?>>thenApply(ResponseEntity::ok)
+                .exceptionally(error -> {
+                    Throwable cause = unwrap(error);
+                    if (cause instanceof UserNotFoundException
+                            || cause instanceof org.springframework.security.core.AuthenticationException) {
+                        return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Неверное имя пользователя или пароль");
+                    }
+                    return overloadedOrRethrow(cause);
+                });
     }
 
-    @Operation(summary = "Выход из системы", description = "Удаляет JWT токен из базы данных (если он передан в заголовке)")
+    @Operation(summary = "Выход из системы", description = "Отзывает refresh токен из заголовка Authorization. "
+            + "Если передан access токен, он отзывается до истечения вместе с refresh токенами пользователя")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "204", description = "Выход выполнен"),
             @ApiResponse(responseCode = "400", description = "Токен не найден в заголовке Authorization или неверный токен")
@@ -72,4 +88,21 @@ public class AuthController {
         }
         return ResponseEntity.badRequest().build();
     }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    // 503 с Retry-After, если пул BCrypt не принял задачу; остальные ошибки уходят в обычную обработку Spring
+    private <T> ResponseEntity<T> overloadedOrRethrow(Throwable cause) {
+        if (cause instanceof RejectedExecutionException) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(passwordHashingProperties.getRetryAfter().toSeconds()))
+                    .build();
+        }
+        if (cause instanceof RuntimeException runtimeException) {
+            throw runtimeException;
+        }
+        throw new CompletionException(cause);
+    }
 }
@@ -6,39 +6,185 @@ import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.core.Authentication;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
+import org.springframework.web.accept.ContentNegotiationManager;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
+import petproekt.task_management_system.dto.CursorPage;
+import petproekt.task_management_system.dto.ErrorResponse;
+import petproekt.task_management_system.dto.TaskBatchRequest;
+import petproekt.task_management_system.dto.TaskBatchResponse;
+import petproekt.task_management_system.dto.TaskFilter;
+import petproekt.task_management_system.dto.TaskPatch;
+import petproekt.task_management_system.dto.TaskSearchResult;
+import petproekt.task_management_system.dto.TaskStats;
+import petproekt.task_management_system.enm.TaskField;
+import petproekt.task_management_system.enm.TaskSort;
 import petproekt.task_management_system.entity.Task;
-import petproekt.task_management_system.entity.UserApp;
 import petproekt.task_management_system.dao.TaskRepository;
 import petproekt.task_management_system.dao.UserRepository;
+import petproekt.task_management_system.exception.TaskNotFoundException;
+import petproekt.task_management_system.exception.TaskVersionConflictException;
+import petproekt.task_management_system.security.AuthenticatedUser;
+import petproekt.task_management_system.service.TaskService;
 
+import java.io.IOException;
 import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/tasks")
 public class TaskController {
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final String NDJSON = "application/x-ndjson";
+    // Форматы списка задач в порядке предпочтения, см. BinaryFormatsConfig
+    private static final List<MediaType> LIST_MEDIA_TYPES = List.of(
+            MediaType.APPLICATION_JSON, MediaType.APPLICATION_CBOR, new MediaType("application", "x-jackson-smile"));
+
     @Autowired
     TaskRepository taskRepository;
     @Autowired
     UserRepository userRepository;
+    @Autowired
+    TaskService taskService;
+    @Autowired
+    ContentNegotiationManager contentNegotiationManager;
 
     @Operation(
             summary = "Получить список задач текущего пользователя",
             security = @SecurityRequirement(name = "bearerAuth"),
-            description = "Возвращает список задач, связанных с авторизованным пользователем"
+            description = "Возвращает страницу задач, связанных с авторизованным пользователем. " +
+                    "Если есть следующая страница, её курсор приходит в заголовке " + NEXT_CURSOR_HEADER +
+                    " и передаётся обратно параметром cursor вместе с теми же фильтрами и sort. Параметр fields " +
+                    "(например, fields=title,done) ограничивает выбираемые колонки и поля в ответе; id возвращается " +
+                    "всегда. Фильтры: done=true|false, titlePrefix — начало названия без учёта регистра. " +
+                    "Порядок sort: id (по умолчанию), createdAt — сначала старые, -createdAt — сначала новые. " +
+                    "В заголовке ETag приходит слабый тег версии списка задач для этого формата и этих параметров; " +
+                    "если передать его в If-None-Match и задачи с тех пор не менялись, ответ будет 304 без тела"
     )
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "Список задач успешно возвращён"),
+            @ApiResponse(responseCode = "200", description = "Страница задач успешно возвращена"),
+            @ApiResponse(responseCode = "304", description = "Задачи не менялись с версии из If-None-Match", content = @Content),
+            @ApiResponse(responseCode = "400", description = "Неизвестное поле в fields, неизвестный sort или некорректный курсор", content = @Content),
             @ApiResponse(responseCode = "401", description = "Пользователь не авторизован", content = @Content),
             @ApiResponse(responseCode = "404", description = "Пользователь не найден", content = @Content)
     })
     @GetMapping
-    public List<Task> getTask(Authentication authentication) {
-        UserApp userApp = userRepository.findByUsername(authentication.getName()).orElseThrow();
-        return taskRepository.findByUserApp(userApp);
+    public ResponseEntity<?> getTask(@RequestParam(required = false) String cursor,
+                                     @RequestParam(defaultValue = "" + TaskService.DEFAULT_PAGE_SIZE) int limit,
+                                     @RequestParam(required = false) String fields,
+                                     @RequestParam(required = false) Boolean done,
+                                     @RequestParam(required = false) String titlePrefix,
+                                     @RequestParam(required = false) String sort,
+                                     @AuthenticationPrincipal AuthenticatedUser user,
+                                     NativeWebRequest request) {
+        // Версия читается до страницы: если задачи изменятся между запросами, ETag окажется
+        // старше данных и следующий опрос получит 200, а не устаревший 304
+        String etag = listETag(taskService.getVersion(user.id()), request);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+
+        CursorPage<?> page;
+        try {
+            TaskFilter filter = new TaskFilter(done, titlePrefix, TaskSort.parse(sort));
+            page = taskService.findPage(user.id(), filter, cursor, limit, TaskField.parse(fields));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
+        }
+
+        // Ответ личный и всегда перепроверяется по ETag; формат (JSON, CBOR, Smile) выбирается по Accept
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .varyBy(HttpHeaders.ACCEPT);
+        if (page.nextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.nextCursor());
+        }
+        return response.body(page.items());
+    }
+
+    @Operation(
+            summary = "Получить количество задач текущего пользователя",
+            security = @SecurityRequirement(name = "bearerAuth"),
+            description = "Возвращает количество всех, открытых и выполненных задач. Счётчики хранятся " +
+                    "отдельно и обновляются вместе с задачами, поэтому задачи не пересчитываются"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Счётчики возвращены"),
+            @ApiResponse(responseCode = "401", description = "Пользователь не авторизован", content = @Content)
+    })
+    @GetMapping("/stats")
+    public TaskStats stats(@AuthenticationPrincipal AuthenticatedUser user) {
+        return taskService.getStats(user.id());
+    }
+
+    @Operation(
+            summary = "Найти задачи текущего пользователя",
+            security = @SecurityRequirement(name = "bearerAuth"),
+            description = "Ищет по названию и описанию: по словам с учётом словоформ (поддерживаются " +
+                    "\"фраза в кавычках\", -исключение и or) и по вхождению подстроки. Самые релевантные " +
+                    "задачи идут первыми. Курсор следующей страницы приходит в заголовке " + NEXT_CURSOR_HEADER
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Результаты поиска возвращены"),
+            @ApiResponse(responseCode = "400", description = "Пустой или слишком длинный запрос, некорректный курсор", content = @Content),
+            @ApiResponse(responseCode = "401", description = "Пользователь не авторизован", content = @Content)
+    })
+    @GetMapping("/search")
+    public ResponseEntity<?> search(@RequestParam String q,
+                                    @RequestParam(required = false) String cursor,
+                                    @RequestParam(defaultValue = "" + TaskService.DEFAULT_SEARCH_PAGE_SIZE) int limit,
+                                    @AuthenticationPrincipal AuthenticatedUser user) {
+        CursorPage<TaskSearchResult> page;
+        try {
+            page = taskService.search(user.id(), q, cursor, limit);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.nextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.nextCursor());
+        }
+        return response.body(page.items());
+    }
+
+    @Operation(
+            summary = "Выгрузить все задачи текущего пользователя потоком NDJSON",
+            security = @SecurityRequirement(name = "bearerAuth"),
+            description = "Возвращает все задачи по одной JSON-строке без загрузки всего списка в память. " +
+                    "Выбирается заголовком Accept: application/x-ndjson"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Задачи выгружены"),
+            @ApiResponse(responseCode = "401", description = "Пользователь не авторизован", content = @Content)
+    })
+    @GetMapping(produces = NDJSON)
+    public void streamTasks(@RequestParam(required = false) String fields,
+                            @AuthenticationPrincipal AuthenticatedUser user,
+                            HttpServletResponse response) throws IOException {
+        Set<TaskField> selectedFields;
+        try {
+            selectedFields = TaskField.parse(fields);
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        }
+
+        response.setContentType(NDJSON);
+        response.setCharacterEncoding("UTF-8");
+        taskService.streamTasks(user.id(), selectedFields, response.getOutputStream());
     }
     @Operation(
             summary = "Создать новую задачу для текущего пользователя",
@@ -50,46 +196,151 @@ public class TaskController {
             @ApiResponse(responseCode = "401", description = "Пользователь не авторизован", content = @Content)
     })
     @PostMapping
-    public Task create(@RequestBody Task task, Authentication authentication) {
-        UserApp userApp = userRepository.findByUsername(authentication.getName()).orElseThrow();
-        task.setUserApp(userApp);
+    public Task create(@RequestBody Task task, @AuthenticationPrincipal AuthenticatedUser user) {
+        // Ссылка по id без SELECT: для вставки нужен только внешний ключ
+        task.setUserApp(userRepository.getReferenceById(user.id()));
         return taskRepository.save(task);
     }
+    @Operation(
+            summary = "Пакетно создать, изменить и удалить задачи",
+            security = @SecurityRequirement(name = "bearerAuth"),
+            description = "Применяет массивы create, update и delete в одной транзакции. " +
+                    "В update поля со значением null не меняются; чужие и несуществующие id пропускаются"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Пакет применён"),
+            @ApiResponse(responseCode = "400", description = "Пакет слишком большой или изменение без id", content = @Content),
+            @ApiResponse(responseCode = "401", description = "Пользователь не авторизован", content = @Content)
+    })
+    @PostMapping("/batch")
+    public ResponseEntity<?> batch(@RequestBody TaskBatchRequest request,
+                                   @AuthenticationPrincipal AuthenticatedUser user) {
+        try {
+            return ResponseEntity.ok(taskService.applyBatch(user.id(), request));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
+        }
+    }
+    @Operation(
+            summary = "Отметить все задачи выполненными",
+            security = @SecurityRequirement(name = "bearerAuth"),
+            description = "Отмечает все незавершённые задачи текущего пользователя одним запросом"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Задачи отмечены, в ответе количество изменённых"),
+            @ApiResponse(responseCode = "401", description = "Пользователь не авторизован", content = @Content)
+    })
+    @PostMapping("/batch/mark-all-done")
+    public TaskBatchResponse markAllDone(@AuthenticationPrincipal AuthenticatedUser user) {
+        return new TaskBatchResponse(List.of(), taskService.markAllDone(user.id()), 0);
+    }
+    @Operation(
+            summary = "Удалить все выполненные задачи",
+            security = @SecurityRequirement(name = "bearerAuth"),
+            description = "Удаляет все выполненные задачи текущего пользователя одним запросом"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Задачи удалены, в ответе количество удалённых"),
+            @ApiResponse(responseCode = "401", description = "Пользователь не авторизован", content = @Content)
+    })
+    @DeleteMapping("/batch/done")
+    public TaskBatchResponse deleteAllDone(@AuthenticationPrincipal AuthenticatedUser user) {
+        return new TaskBatchResponse(List.of(), 0, taskService.deleteAllDone(user.id()));
+    }
+    @Operation(
+            summary = "Изменить задачу по ID",
+            security = @SecurityRequirement(name = "bearerAuth"),
+            description = "Меняет только переданные поля задачи текущего пользователя одним запросом к базе. " +
+                    "Если передана version и задача с тех пор изменилась, ответ 409; в ответе 200 новая версия"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Задача успешно изменена"),
+            @ApiResponse(responseCode = "400", description = "Не указано ни одного поля для изменения", content = @Content),
+            @ApiResponse(responseCode = "401", description = "Пользователь не авторизован", content = @Content),
+            @ApiResponse(responseCode = "404", description = "Задача не найдена или принадлежит другому пользователю", content = @Content),
+            @ApiResponse(responseCode = "409", description = "Версия задачи не совпала", content = @Content)
+    })
+    @PatchMapping("/{id}")
+    public ResponseEntity<?> patch(@PathVariable UUID id,
+                                   @RequestBody TaskPatch patch,
+                                   @AuthenticationPrincipal AuthenticatedUser user) {
+        try {
+            return ResponseEntity.ok(taskService.patch(user.id(), id, patch));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
+        } catch (TaskNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ErrorResponse(e.getMessage()));
+        } catch (TaskVersionConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(new ErrorResponse(e.getMessage()));
+        }
+    }
     @Operation(
             summary = "Обновить задачу по ID",
             security = @SecurityRequirement(name = "bearerAuth"),
-            description = "Обновляет данные задачи, если она принадлежит текущему пользователю"
+            description = "Устаревший вариант PATCH /tasks/{id}: меняет title, description (если переданы) и done",
+            deprecated = true
     )
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Задача успешно обновлена"),
             @ApiResponse(responseCode = "401", description = "Пользователь не авторизован", content = @Content),
-            @ApiResponse(responseCode = "403", description = "Доступ запрещён — задача не принадлежит пользователю", content = @Content),
-            @ApiResponse(responseCode = "404", description = "Задача не найдена", content = @Content)
+            @ApiResponse(responseCode = "404", description = "Задача не найдена или принадлежит другому пользователю", content = @Content)
     })
     @PostMapping("/{id}")
-public Task update(@PathVariable UUID id,@RequestBody Task taskUpdate,Authentication authentication){
-        Task task = taskRepository.findById(id).orElseThrow();
-        if(!task.getUserApp().getUsername().equals(authentication.getName()))throw new SecurityException();
-        task.setTitle(taskUpdate.getDescription());
-        task.setDone(taskUpdate.isDone());
-        return taskRepository.save(task);
+    public ResponseEntity<?> update(@PathVariable UUID id,
+                                    @RequestBody Task taskUpdate,
+                                    @AuthenticationPrincipal AuthenticatedUser user) {
+        return patch(id, new TaskPatch(taskUpdate.getTitle(), taskUpdate.getDescription(), taskUpdate.isDone(), null), user);
     }
     @Operation(
             summary = "Удалить задачу по ID",
             security = @SecurityRequirement(name = "bearerAuth"),
-            description = "Удаляет задачу, если она принадлежит текущему пользователю"
+            description = "Удаляет задачу текущего пользователя одним запросом к базе. " +
+                    "Если передан параметр version и задача с тех пор изменилась, ответ 409"
     )
     @ApiResponses(value = {
             @ApiResponse(responseCode = "204", description = "Задача успешно удалена"),
             @ApiResponse(responseCode = "401", description = "Пользователь не авторизован", content = @Content),
-            @ApiResponse(responseCode = "403", description = "Доступ запрещён — задача не принадлежит пользователю", content = @Content),
-            @ApiResponse(responseCode = "404", description = "Задача не найдена", content = @Content)
+            @ApiResponse(responseCode = "404", description = "Задача не найдена или принадлежит другому пользователю", content = @Content),
+            @ApiResponse(responseCode = "409", description = "Версия задачи не совпала", content = @Content)
     })
     @DeleteMapping("/{id}")
-    public void delete(@PathVariable UUID id,Authentication authentication){
-        Task task = taskRepository.findById(id).orElseThrow();
-        if(!task.getUserApp().getUsername().equals(authentication.getName()))throw new SecurityException();
-        taskRepository.delete(task);
+    public ResponseEntity<?> delete(@PathVariable UUID id,
+                                    @RequestParam(required = false) Long version,
+                                    @AuthenticationPrincipal AuthenticatedUser user) {
+        try {
+            taskService.delete(user.id(), id, version);
+            return ResponseEntity.noContent().build();
+        } catch (TaskNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ErrorResponse(e.getMessage()));
+        } catch (TaskVersionConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(new ErrorResponse(e.getMessage()));
+        }
     }
 
+    /**
+     * ETag конкретного представления списка: версия задач пользователя, выбранный по Accept формат
+     * и параметры запроса. Слабый, потому что байты ответа зависят ещё и от gzip: Tomcat не сжимает
+     * ответы с сильным ETag, а один сильный тег на JSON, CBOR и Smile был бы неверен.
+     */
+    private String listETag(long version, NativeWebRequest request) {
+        String variant = negotiatedListType(request) + "?" + new TreeMap<>(request.getParameterMap()).entrySet().stream()
+                .map(parameter -> parameter.getKey() + "=" + String.join(",", parameter.getValue()))
+                .collect(Collectors.joining("&"));
+        return "W/\"" + version + "-" + Integer.toHexString(variant.hashCode()) + "\"";
+    }
+
+    private MediaType negotiatedListType(NativeWebRequest request) {
+        try {
+            for (MediaType requested : contentNegotiationManager.resolveMediaTypes(request)) {
+                for (MediaType producible : LIST_MEDIA_TYPES) {
+                    if (requested.isCompatibleWith(producible)) {
+                        return producible;
+                    }
+                }
+            }
+        } catch (HttpMediaTypeNotAcceptableException e) {
+            // Неразборчивый Accept: формат выберет конвертер, тег считаем как для JSON
+        }
+        return MediaType.APPLICATION_JSON;
+    }
 }
@@ -9,7 +9,8 @@ import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -22,7 +23,9 @@ import petproekt.task_management_system.enm.TokenType;
 import petproekt.task_management_system.entity.UserApp;
 import petproekt.task_management_system.exception.UserNotFoundException;
 import petproekt.task_management_system.mapper.UserInfoMapper;
+import petproekt.task_management_system.security.AuthenticatedUser;
 import petproekt.task_management_system.security.JwtUtil;
+import petproekt.task_management_system.security.TokenVerification;
 import petproekt.task_management_system.service.CustomUserDetailsService;
 import petproekt.task_management_system.service.UserTokenService;
 
@@ -81,10 +84,12 @@ public class UserController {
             )
     })
     @GetMapping("/id")
-    public ResponseEntity<?> getCurrentUserInfo(Authentication authentication) {
+    public ResponseEntity<?> getCurrentUserInfo(@AuthenticationPrincipal AuthenticatedUser principal) {
+        if (principal == null) {
+            return unauthorized("Пользователь не авторизован");
+        }
         try {
-            String username = authentication.getName(); // или получить userId, если вы его кладёте в токен
-            UserApp user = userService.findByUsername(username); // или findById если в токене есть ID
+            UserApp user = userService.findById(principal.id());
             UserInfoDto response = userInfoMapper.toUserInfoDto(user);
             return ResponseEntity.ok(response);
         } catch (UserNotFoundException e) {
@@ -123,7 +128,8 @@ public class UserController {
             return unauthorized("Отсутствует или некорректный refresh-токен");
         }
 
-        if (!jwtUtil.validateToken(refreshToken, TokenType.REFRESH)) {
+        TokenVerification verification = jwtUtil.verify(refreshToken, TokenType.REFRESH);
+        if (!verification.isValid()) {
             return unauthorized("Refresh-токен недействителен или истек");
         }
 
@@ -132,15 +138,21 @@ public class UserController {
             return unauthorized("Refresh-токен не найден в базе или просрочен");
         }
 
-        String username = jwtUtil.getUsernameFromToken(refreshToken, TokenType.REFRESH);
+        String username = verification.token().subject();
         if (username == null || username.isBlank()) {
             return unauthorized("Не удалось извлечь имя пользователя из refresh-токена");
         }
 
-        String newAccessToken = jwtUtil.generateToken(username, TokenType.ACCESS);
+        AuthenticatedUser user;
+        try {
+            user = userService.loadUserByUsername(username).getAuthenticatedUser();
+        } catch (UsernameNotFoundException e) {
+            return unauthorized("Пользователь из refresh-токена не найден");
+        }
+        String newAccessToken = jwtUtil.generateAccessToken(user);
 
         // Проверка: если refresh-токен скоро истечет — обновляем
-        long expirationSeconds = jwtUtil.getRemainingExpirationSeconds(refreshToken, TokenType.REFRESH);
+        long expirationSeconds = verification.token().remainingSeconds();
         boolean needRefreshRotation = expirationSeconds < 60; // менее 1 минуты
 
         String actualRefreshToken = refreshToken;
@@ -0,0 +1,31 @@
+package petproekt.task_management_system.dao;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import petproekt.task_management_system.entity.DeniedAccessToken;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Репозиторий отозванных access токенов (deny-list по jti).
+ */
+public interface DeniedAccessTokenRepository extends JpaRepository<DeniedAccessToken, String> {
+
+    /**
+     * @param now текущее время
+     * @return записи, срок которых ещё не истёк
+     */
+    List<DeniedAccessToken> findAllByExpiresAtAfter(Instant now);
+
+    /**
+     * Удаляет записи об уже истёкших токенах.
+     *
+     * @param now текущее время
+     * @return количество удалённых строк
+     */
+    @Modifying
+    @Query("DELETE FROM DeniedAccessToken d WHERE d.expiresAt < :now")
+    int deleteAllExpired(Instant now);
+}
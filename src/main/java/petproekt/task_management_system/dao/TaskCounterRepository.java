@@ -0,0 +1,21 @@
+package petproekt.task_management_system.dao;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import petproekt.task_management_system.entity.TaskCounter;
+
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Репозиторий счётчиков задач пользователей (task_counters).
+ */
+public interface TaskCounterRepository extends JpaRepository<TaskCounter, UUID> {
+
+    /**
+     * @param userId id пользователя
+     * @return версия списка задач или пусто, если у пользователя ещё не было задач
+     */
+    @Query("SELECT c.version FROM TaskCounter c WHERE c.userId = :userId")
+    Optional<Long> findVersionByUserId(UUID userId);
+}
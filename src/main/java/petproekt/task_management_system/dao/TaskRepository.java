@@ -1,12 +1,81 @@
 package petproekt.task_management_system.dao;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import petproekt.task_management_system.dto.TaskDto;
 import petproekt.task_management_system.entity.Task;
-import petproekt.task_management_system.entity.UserApp;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
-public interface TaskRepository extends JpaRepository<Task, UUID> {
-    List<Task> findByUserApp(UserApp userApp);
+public interface TaskRepository extends JpaRepository<Task, UUID>, TaskRepositoryCustom {
+
+    String SELECT_DTO = "SELECT new petproekt.task_management_system.dto.TaskDto(t.id, t.title, t.description, t.done, t.createdAt, t.version) FROM Task t ";
+
+    /**
+     * Первая страница задач пользователя в порядке id.
+     */
+    @Query(SELECT_DTO + "WHERE t.userApp.id = :userId ORDER BY t.id")
+    List<TaskDto> findDtoPage(UUID userId, Limit limit);
+
+    /**
+     * Следующая страница задач пользователя: строго после задачи с id {@code cursor}.
+     */
+    @Query(SELECT_DTO + "WHERE t.userApp.id = :userId AND t.id > :cursor ORDER BY t.id")
+    List<TaskDto> findDtoPageAfter(UUID userId, UUID cursor, Limit limit);
+
+    /**
+     * Потоковое чтение всех задач пользователя курсором JDBC.
+     * Должно вызываться внутри транзакции, а Stream нужно закрыть.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query(SELECT_DTO + "WHERE t.userApp.id = :userId ORDER BY t.id")
+    Stream<TaskDto> streamDtoByUserId(UUID userId);
+
+    /**
+     * Задачи пользователя с указанными id (чужие задачи не возвращаются).
+     */
+    List<Task> findAllByIdInAndUserAppId(Collection<UUID> ids, UUID userId);
+
+    /**
+     * Текущая версия задачи пользователя. Нужна только после неудачного изменения,
+     * чтобы отличить отсутствующую задачу от конфликта версий.
+     */
+    @Query("SELECT t.version FROM Task t WHERE t.id = :id AND t.userApp.id = :userId")
+    Optional<Long> findVersionByIdAndUserId(UUID id, UUID userId);
+
+    /**
+     * Удаляет задачи пользователя с указанными id одним DELETE.
+     *
+     * @return количество удалённых задач
+     */
+    @Modifying
+    @Query("DELETE FROM Task t WHERE t.id IN :ids AND t.userApp.id = :userId")
+    int deleteAllByIdInAndUserId(Collection<UUID> ids, UUID userId);
+
+    /**
+     * Отмечает все незавершённые задачи пользователя выполненными одним UPDATE.
+     *
+     * @return количество изменённых задач
+     */
+    @Modifying
+    @Query("UPDATE Task t SET t.done = true, t.version = t.version + 1 WHERE t.userApp.id = :userId AND t.done = false")
+    int markAllDone(UUID userId);
+
+    /**
+     * Удаляет все выполненные задачи пользователя одним DELETE.
+     *
+     * @return количество удалённых задач
+     */
+    @Modifying
+    @Query("DELETE FROM Task t WHERE t.userApp.id = :userId AND t.done = true")
+    int deleteAllDone(UUID userId);
 }
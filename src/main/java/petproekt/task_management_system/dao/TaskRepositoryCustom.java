@@ -0,0 +1,75 @@
+package petproekt.task_management_system.dao;
+
+import petproekt.task_management_system.dto.TaskCursor;
+import petproekt.task_management_system.dto.TaskDto;
+import petproekt.task_management_system.dto.TaskFilter;
+import petproekt.task_management_system.dto.TaskPatch;
+import petproekt.task_management_system.dto.TaskSearchResult;
+import petproekt.task_management_system.enm.TaskField;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Запросы к задачам, которые нельзя выразить фиксированным JPQL: список колонок задаётся клиентом
+ * или нужны функции PostgreSQL (полнотекстовый и триграммный поиск).
+ */
+public interface TaskRepositoryCustom {
+
+    /**
+     * Страница задач пользователя с фильтрами и порядком из {@code filter},
+     * в SELECT попадают только запрошенные колонки.
+     *
+     * @param userId id пользователя
+     * @param filter фильтры и порядок
+     * @param cursor последняя задача предыдущей страницы или null
+     * @param limit  максимальное количество строк
+     * @param fields запрошенные поля; для порядка по времени должны включать createdAt
+     * @return строки вида "имя поля → значение" в порядке полей
+     */
+    List<Map<String, Object>> findFieldsPage(UUID userId, TaskFilter filter, TaskCursor cursor, int limit,
+                                             Set<TaskField> fields);
+
+    /**
+     * Потоковое чтение запрошенных колонок всех задач пользователя.
+     * Должно вызываться внутри транзакции, а Stream нужно закрыть.
+     */
+    Stream<Map<String, Object>> streamFields(UUID userId, Set<TaskField> fields);
+
+    /**
+     * Поиск по задачам пользователя: полнотекстовое совпадение по title и description
+     * (с учётом словоформ) или вхождение подстроки. Выдача упорядочена по релевантности, затем по id.
+     *
+     * @param userId id пользователя
+     * @param query  строка поиска в синтаксисе websearch_to_tsquery ("фраза в кавычках", -исключение, or)
+     * @param offset сколько результатов пропустить
+     * @param limit  максимальное количество результатов
+     * @return найденные задачи с релевантностью
+     */
+    List<TaskSearchResult> search(UUID userId, String query, int offset, int limit);
+
+    /**
+     * Изменяет задачу пользователя одним UPDATE ... RETURNING: в SET попадают только
+     * поля патча со значением не null, версия увеличивается.
+     *
+     * @param userId id владельца
+     * @param id     id задачи
+     * @param patch  изменяемые поля и ожидаемая версия (null — без проверки версии)
+     * @return задача после изменения или пусто, если задачи нет, она чужая или версия не совпала
+     */
+    Optional<TaskDto> updateOwned(UUID userId, UUID id, TaskPatch patch);
+
+    /**
+     * Удаляет задачу пользователя одним DELETE.
+     *
+     * @param userId  id владельца
+     * @param id      id задачи
+     * @param version ожидаемая версия или null — без проверки версии
+     * @return количество удалённых строк (0 или 1)
+     */
+    int deleteOwned(UUID userId, UUID id, Long version);
+}
@@ -0,0 +1,219 @@
+package petproekt.task_management_system.dao;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.hibernate.jpa.HibernateHints;
+import petproekt.task_management_system.dto.TaskCursor;
+import petproekt.task_management_system.dto.TaskDto;
+import petproekt.task_management_system.dto.TaskFilter;
+import petproekt.task_management_system.dto.TaskPatch;
+import petproekt.task_management_system.dto.TaskSearchResult;
+import petproekt.task_management_system.enm.TaskField;
+import petproekt.task_management_system.enm.TaskSort;
+import petproekt.task_management_system.entity.Task;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+public class TaskRepositoryCustomImpl implements TaskRepositoryCustom {
+
+    private static final int STREAM_FETCH_SIZE = 500;
+
+    // Полнотекстовое совпадение идёт по idx_task_user_search_vector, подстрока — по триграммным индексам.
+    // Релевантность: ранг совпадения слов плюс похожесть заголовка на запрос, чтобы подстрочные
+    // совпадения без совпадения слов тоже упорядочивались
+    private static final String SEARCH_SQL = """
+            SELECT t.id, t.title, t.description, t.done,
+                   ts_rank_cd(t.search_vector, q.query) + similarity(coalesce(t.title, ''), :text) AS rank
+            FROM task t, websearch_to_tsquery('russian', :text) AS q(query)
+            WHERE t.user_id = :userId
+              AND (t.search_vector @@ q.query
+                   OR t.title ILIKE :pattern ESCAPE '\\'
+                   OR t.description ILIKE :pattern ESCAPE '\\')
+            ORDER BY rank DESC, t.id
+            OFFSET :offset LIMIT :limit
+            """;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Map<String, Object>> findFieldsPage(UUID userId, TaskFilter filter, TaskCursor cursor, int limit,
+                                                    Set<TaskField> fields) {
+        return fieldsQuery(userId, filter, cursor, fields)
+                .setMaxResults(limit)
+                .getResultList()
+                .stream()
+                .map(tuple -> toRow(tuple, fields))
+                .toList();
+    }
+
+    @Override
+    public Stream<Map<String, Object>> streamFields(UUID userId, Set<TaskField> fields) {
+        return fieldsQuery(userId, TaskFilter.NONE, null, fields)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, STREAM_FETCH_SIZE)
+                .getResultStream()
+                .map(tuple -> toRow(tuple, fields));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<TaskSearchResult> search(UUID userId, String query, int offset, int limit) {
+        List<Object[]> rows = entityManager.createNativeQuery(SEARCH_SQL)
+                .setParameter("userId", userId)
+                .setParameter("text", query)
+                .setParameter("pattern", "%" + escapeLike(query) + "%")
+                .setParameter("offset", offset)
+                .setParameter("limit", limit)
+                .getResultList();
+        return rows.stream()
+                .map(row -> new TaskSearchResult(
+                        (UUID) row[0],
+                        (String) row[1],
+                        (String) row[2],
+                        Boolean.TRUE.equals(row[3]),
+                        ((Number) row[4]).doubleValue()))
+                .toList();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Optional<TaskDto> updateOwned(UUID userId, UUID id, TaskPatch patch) {
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        StringBuilder sql = new StringBuilder("UPDATE task SET version = version + 1");
+        if (patch.title() != null) {
+            sql.append(", title = :title");
+            parameters.put("title", patch.title());
+        }
+        if (patch.description() != null) {
+            sql.append(", description = :description");
+            parameters.put("description", patch.description());
+        }
+        if (patch.done() != null) {
+            sql.append(", done = :done");
+            parameters.put("done", patch.done());
+        }
+        sql.append(" WHERE id = :id AND user_id = :userId");
+        if (patch.version() != null) {
+            sql.append(" AND version = :version");
+            parameters.put("version", patch.version());
+        }
+        sql.append(" RETURNING id, title, description, done, created_at, version");
+
+        Query query = entityManager.createNativeQuery(sql.toString())
+                .setParameter("id", id)
+                .setParameter("userId", userId);
+        parameters.forEach(query::setParameter);
+        List<Object[]> rows = query.getResultList();
+        return rows.stream()
+                .findFirst()
+                .map(row -> new TaskDto(
+                        (UUID) row[0],
+                        (String) row[1],
+                        (String) row[2],
+                        Boolean.TRUE.equals(row[3]),
+                        toLocalDateTime(row[4]),
+                        ((Number) row[5]).longValue()));
+    }
+
+    @Override
+    public int deleteOwned(UUID userId, UUID id, Long version) {
+        Query query = entityManager.createNativeQuery(version == null
+                        ? "DELETE FROM task WHERE id = :id AND user_id = :userId"
+                        : "DELETE FROM task WHERE id = :id AND user_id = :userId AND version = :version")
+                .setParameter("id", id)
+                .setParameter("userId", userId);
+        if (version != null) {
+            query.setParameter("version", version);
+        }
+        return query.executeUpdate();
+    }
+
+    // Условия подобраны под индексы idx_task_user_done_created_at, idx_task_user_created_at
+    // и idx_task_user_title_prefix (changeset 013)
+    private TypedQuery<Tuple> fieldsQuery(UUID userId, TaskFilter filter, TaskCursor cursor, Set<TaskField> fields) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Task> task = query.from(Task.class);
+
+        List<Selection<?>> selections = fields.stream()
+                .<Selection<?>>map(field -> task.get(field.attribute()).alias(field.attribute()))
+                .toList();
+        query.multiselect(selections);
+
+        List<Predicate> where = new ArrayList<>();
+        where.add(cb.equal(task.get("userApp").get("id"), userId));
+        if (filter.done() != null) {
+            where.add(cb.equal(task.get("done"), filter.done()));
+        }
+        if (filter.titlePrefix() != null) {
+            where.add(cb.like(cb.lower(task.get("title")), escapeLike(filter.titlePrefix().toLowerCase(Locale.ROOT)) + "%", '\\'));
+        }
+
+        Expression<UUID> id = task.get("id");
+        Expression<LocalDateTime> createdAt = task.get("createdAt");
+        TaskSort sort = filter.sort();
+        if (cursor != null) {
+            // Для порядка по времени создания OR из двух веток дополнен избыточным условием
+            // created_at >= c (<= c для обратного порядка): оно задаёт начало диапазона индекса,
+            // и сканирование начинается с курсора, а не с первой задачи пользователя
+            switch (sort) {
+                case ID -> where.add(cb.greaterThan(id, cursor.id()));
+                case CREATED_AT -> {
+                    where.add(cb.greaterThanOrEqualTo(createdAt, cursor.createdAt()));
+                    where.add(cb.or(
+                            cb.greaterThan(createdAt, cursor.createdAt()),
+                            cb.and(cb.equal(createdAt, cursor.createdAt()), cb.greaterThan(id, cursor.id()))));
+                }
+                case CREATED_AT_DESC -> {
+                    where.add(cb.lessThanOrEqualTo(createdAt, cursor.createdAt()));
+                    where.add(cb.or(
+                            cb.lessThan(createdAt, cursor.createdAt()),
+                            cb.and(cb.equal(createdAt, cursor.createdAt()), cb.lessThan(id, cursor.id()))));
+                }
+            }
+        }
+        query.where(where.toArray(Predicate[]::new));
+        switch (sort) {
+            case ID -> query.orderBy(cb.asc(id));
+            case CREATED_AT -> query.orderBy(cb.asc(createdAt), cb.asc(id));
+            case CREATED_AT_DESC -> query.orderBy(cb.desc(createdAt), cb.desc(id));
+        }
+        return entityManager.createQuery(query);
+    }
+
+    private static Map<String, Object> toRow(Tuple tuple, Set<TaskField> fields) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        for (TaskField field : fields) {
+            row.put(field.attribute(), tuple.get(field.attribute()));
+        }
+        return row;
+    }
+
+    // Драйвер может вернуть TIMESTAMP как java.sql.Timestamp или как LocalDateTime
+    private static LocalDateTime toLocalDateTime(Object value) {
+        return value instanceof Timestamp timestamp ? timestamp.toLocalDateTime() : (LocalDateTime) value;
+    }
+
+    private static String escapeLike(String text) {
+        return text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
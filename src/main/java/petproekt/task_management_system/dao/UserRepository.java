@@ -1,6 +1,8 @@
 package petproekt.task_management_system.dao;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 
 import petproekt.task_management_system.entity.UserApp;
 
@@ -11,4 +13,8 @@ public interface UserRepository extends JpaRepository<UserApp, UUID> {
 
     Optional<UserApp> findByUsername(String username);
     boolean existsByUsername(String username);
+
+    @Modifying
+    @Query("UPDATE UserApp u SET u.password = :password WHERE u.id = :id")
+    int updatePassword(UUID id, String password);
 }
@@ -1,8 +1,11 @@
 package petproekt.task_management_system.dao;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import petproekt.task_management_system.entity.UserApp;
 import petproekt.task_management_system.entity.UserToken;
 import petproekt.task_management_system.enm.TokenType;
@@ -10,6 +13,8 @@ import petproekt.task_management_system.enm.TokenType;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Stream;
 
 /**
  * Репозиторий для работы с токенами пользователей.
@@ -18,12 +23,12 @@ import java.util.Optional;
 public interface UserTokenRepository extends JpaRepository<UserToken, Long> {
 
     /**
-     * Ищет токен по его значению.
+     * Ищет токен по SHA-256 хэшу его значения.
      *
-     * @param token JWT токен
+     * @param tokenHash SHA-256 JWT токена (см. TokenHashes)
      * @return Optional с найденным токеном или пустой, если токен не найден
      */
-    Optional<UserToken> findByToken(String token);
+    Optional<UserToken> findByTokenHash(byte[] tokenHash);
 
     /**
      * Возвращает все токены пользователя указанного типа.
@@ -60,6 +65,22 @@ public interface UserTokenRepository extends JpaRepository<UserToken, Long> {
      */
     List<UserToken> findAllByUserAndTokenTypeAndRevokedFalse(UserApp user, TokenType tokenType);
 
+    /**
+     * Удаляет порцию токенов указанного типа, созданных раньше cutoff, одним DELETE.
+     * Подзапрос с LIMIT ограничивает размер транзакции и блокировок; вызывается в цикле,
+     * пока возвращает полную порцию.
+     *
+     * @param tokenType имя типа токена (TokenType#name)
+     * @param cutoff    дата-время, до которого токены считаются устаревшими
+     * @param limit     максимальный размер порции
+     * @return количество удалённых строк
+     */
+    @Modifying
+    @Query(value = "DELETE FROM user_tokens WHERE id IN (" +
+            "SELECT id FROM user_tokens WHERE token_type = :tokenType AND created_at < :cutoff LIMIT :limit)",
+            nativeQuery = true)
+    int deleteExpiredChunk(String tokenType, LocalDateTime cutoff, int limit);
+
     /**
      * Удаляет все токены, созданные раньше указанной даты (используется для автоматической очистки).
      *
@@ -70,11 +91,45 @@ public interface UserTokenRepository extends JpaRepository<UserToken, Long> {
     void deleteAllByCreatedAtBefore(LocalDateTime cutoff);
 
     /**
-     * Удаляет токен по его значению (используется при отзыве токена).
+     * Удаляет токен по хэшу его значения (используется при отзыве токена).
+     *
+     * @param tokenHash SHA-256 JWT токена
+     */
+    @Modifying
+    @Query("DELETE FROM UserToken ut WHERE ut.tokenHash = :tokenHash")
+    void deleteByTokenHash(byte[] tokenHash);
+
+    /**
+     * Помечает токен отозванным одним UPDATE, без предварительного SELECT.
      *
-     * @param token значение JWT токена
+     * @param tokenHash SHA-256 JWT токена
+     * @return количество изменённых строк (0, если токен не найден)
      */
     @Modifying
-    @Query("DELETE FROM UserToken ut WHERE ut.token = :token")
-    void deleteByToken(String token);
+    @Query("UPDATE UserToken ut SET ut.revoked = true WHERE ut.tokenHash = :tokenHash")
+    int revokeByTokenHash(byte[] tokenHash);
+
+    /**
+     * Отзывает все активные токены пользователя указанного типа одним UPDATE
+     * по индексу (user_id, token_type, revoked). Должен вызываться внутри транзакции.
+     *
+     * @param userId    id пользователя
+     * @param tokenType имя типа токена (TokenType#name)
+     * @return SHA-256 хэши отозванных токенов (для индекса отозванных токенов)
+     */
+    @Query(value = "UPDATE user_tokens SET revoked = true " +
+            "WHERE user_id = :userId AND token_type = :tokenType AND revoked = false " +
+            "RETURNING token_hash",
+            nativeQuery = true)
+    List<byte[]> revokeAllByUserAndType(UUID userId, String tokenType);
+
+    /**
+     * Потоково читает хэши всех отозванных токенов (для построения индекса отозванных токенов).
+     * Должен вызываться внутри транзакции, поток нужно закрыть.
+     *
+     * @return поток SHA-256 хэшей отозванных токенов
+     */
+    @Query("SELECT ut.tokenHash FROM UserToken ut WHERE ut.revoked = true")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    Stream<byte[]> streamRevokedTokenHashes();
 }
@@ -0,0 +1,119 @@
+package petproekt.task_management_system.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import petproekt.task_management_system.security.AuthenticatedUser;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import javax.sql.DataSource;
+
+/**
+ * Выбирает пул по текущей транзакции: readOnly = true уходит на одну из реплик (по кругу),
+ * всё остальное — в основную базу. Решение принимается при получении физического соединения,
+ * поэтому снаружи источник должен быть обёрнут в LazyConnectionDataSourceProxy: иначе
+ * JpaTransactionManager берёт соединение раньше, чем становится известен флаг readOnly.
+ *
+ * <p>Чтения пользователя, который писал в пределах окна {@link ReadYourWritesTracker},
+ * тоже идут в основную базу. Пользователь определяется по {@link AuthenticatedUser} в SecurityContext;
+ * код без аутентификации (логин, обновление токена) при необходимости сам вызывает {@link #onPrimary}.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+
+    private static final String PRIMARY = "primary";
+
+    // Флаг на время вызова onPrimary; снимается в finally, поэтому безопасен и для виртуальных потоков
+    private static final ThreadLocal<Boolean> FORCE_PRIMARY = new ThreadLocal<>();
+
+    private final Map<String, DataSource> replicas;
+    private final List<String> replicaKeys;
+    private final ReadYourWritesTracker readYourWrites;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+
+    public ReadWriteRoutingDataSource(DataSource primary, Map<String, DataSource> replicas,
+                                      ReadYourWritesTracker readYourWrites) {
+        this.replicas = replicas;
+        this.replicaKeys = List.copyOf(replicas.keySet());
+        this.readYourWrites = readYourWrites;
+
+        Map<Object, Object> targets = new HashMap<>(replicas);
+        targets.put(PRIMARY, primary);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+    }
+
+    /**
+     * Выполняет действие так, что новые соединения берутся из основной базы.
+     * Нужен, когда на реплике может не оказаться только что записанных данных,
+     * а пользователь ещё не аутентифицирован. Не влияет на соединение, уже привязанное
+     * к внешней транзакции.
+     *
+     * @param action действие, обычно вызов репозитория
+     * @return результат действия
+     */
+    public static <T> T onPrimary(Supplier<T> action) {
+        Boolean previous = FORCE_PRIMARY.get();
+        FORCE_PRIMARY.set(Boolean.TRUE);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                FORCE_PRIMARY.remove();
+            }
+        }
+    }
+
+    /**
+     * Закрывает пулы реплик; основной пул закрывается как отдельный бин.
+     */
+    @Override
+    public void close() throws Exception {
+        for (DataSource replica : replicas.values()) {
+            if (replica instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        UUID userId = currentUserId();
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            recordWriteAfterCommit(userId);
+            return PRIMARY;
+        }
+        if (replicaKeys.isEmpty() || FORCE_PRIMARY.get() != null
+                || (userId != null && readYourWrites.hasRecentWrite(userId))) {
+            return PRIMARY;
+        }
+        return replicaKeys.get(Math.floorMod(nextReplica.getAndIncrement(), replicaKeys.size()));
+    }
+
+    private void recordWriteAfterCommit(UUID userId) {
+        if (userId == null || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        // Окно отсчитывается от коммита: до него реплике нечего догонять
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                readYourWrites.recordWrite(userId);
+            }
+        });
+    }
+
+    private static UUID currentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof AuthenticatedUser user) {
+            return user.id();
+        }
+        return null;
+    }
+}
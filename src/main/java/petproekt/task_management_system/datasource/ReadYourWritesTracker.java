@@ -0,0 +1,40 @@
+package petproekt.task_management_system.datasource;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Помнит пользователей, которые недавно что-то записали в основную базу.
+ * Пока запись не старше окна, их чтения не уходят на реплику, где изменения могут ещё не появиться.
+ */
+public class ReadYourWritesTracker {
+
+    private final Cache<UUID, Boolean> recentWriters;
+
+    public ReadYourWritesTracker(Duration window, long maxUsers) {
+        this.recentWriters = Caffeine.newBuilder()
+                .expireAfterWrite(window)
+                .maximumSize(maxUsers)
+                .build();
+    }
+
+    /**
+     * Отмечает запись пользователя; окно отсчитывается заново.
+     *
+     * @param userId id пользователя
+     */
+    public void recordWrite(UUID userId) {
+        recentWriters.put(userId, Boolean.TRUE);
+    }
+
+    /**
+     * @param userId id пользователя
+     * @return true, если пользователь писал в базу в пределах окна
+     */
+    public boolean hasRecentWrite(UUID userId) {
+        return recentWriters.getIfPresent(userId) != null;
+    }
+}
@@ -0,0 +1,14 @@
+package petproekt.task_management_system.dto;
+
+import java.util.List;
+
+/**
+ * Страница keyset-пагинации.
+ *
+ * @param items      элементы страницы
+ * @param nextCursor курсор следующей страницы или null, если страница последняя
+ */
+public record CursorPage<T>(
+        List<T> items,
+        String nextCursor
+) {}
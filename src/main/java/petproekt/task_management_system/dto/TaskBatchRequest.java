@@ -0,0 +1,17 @@
+package petproekt.task_management_system.dto;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Пакет изменений задач, применяемый в одной транзакции.
+ *
+ * @param create новые задачи
+ * @param update изменения существующих задач
+ * @param delete id задач на удаление
+ */
+public record TaskBatchRequest(
+        List<TaskRequest> create,
+        List<TaskBatchUpdate> update,
+        List<UUID> delete
+) {}
@@ -0,0 +1,16 @@
+package petproekt.task_management_system.dto;
+
+import java.util.List;
+
+/**
+ * Результат пакетной операции над задачами.
+ *
+ * @param created созданные задачи с присвоенными id
+ * @param updated количество изменённых задач
+ * @param deleted количество удалённых задач
+ */
+public record TaskBatchResponse(
+        List<TaskDto> created,
+        int updated,
+        int deleted
+) {}
@@ -0,0 +1,13 @@
+package petproekt.task_management_system.dto;
+
+import java.util.UUID;
+
+/**
+ * Изменение одной задачи в пакетном запросе. Поля со значением null не меняются.
+ */
+public record TaskBatchUpdate(
+        UUID id,
+        String title,
+        String description,
+        Boolean done
+) {}
@@ -0,0 +1,57 @@
+package petproekt.task_management_system.dto;
+
+import petproekt.task_management_system.enm.TaskSort;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Позиция последней задачи страницы для keyset-пагинации.
+ * При порядке по id курсор — сам id (как и раньше), при порядке по времени создания —
+ * непрозрачная строка Base64 с временем создания и id.
+ *
+ * @param createdAt время создания последней задачи; null при порядке по id
+ * @param id        id последней задачи
+ */
+public record TaskCursor(
+        LocalDateTime createdAt,
+        UUID id
+) {
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+    private static final char SEPARATOR = '|';
+
+    public String encode() {
+        if (createdAt == null) {
+            return id.toString();
+        }
+        return ENCODER.encodeToString((createdAt.toString() + SEPARATOR + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param cursor значение параметра cursor или null
+     * @param sort   порядок, для которого выдан курсор
+     * @return курсор или null для первой страницы
+     * @throws IllegalArgumentException если курсор повреждён или выдан для другого порядка
+     */
+    public static TaskCursor decode(String cursor, TaskSort sort) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            if (!sort.byCreatedAt()) {
+                return new TaskCursor(null, UUID.fromString(cursor));
+            }
+            String decoded = new String(DECODER.decode(cursor), StandardCharsets.UTF_8);
+            int separator = decoded.indexOf(SEPARATOR);
+            return new TaskCursor(
+                    LocalDateTime.parse(decoded.substring(0, separator)),
+                    UUID.fromString(decoded.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Некорректный курсор: " + cursor);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package petproekt.task_management_system.dto;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Задача в ответах API: только колонки таблицы task, без владельца.
+ */
+public record TaskDto(
+        UUID id,
+        String title,
+        String description,
+        boolean done,
+        LocalDateTime createdAt,
+        long version
+) {}
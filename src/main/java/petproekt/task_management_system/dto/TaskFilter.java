@@ -0,0 +1,31 @@
+package petproekt.task_management_system.dto;
+
+import petproekt.task_management_system.enm.TaskSort;
+
+/**
+ * Фильтры и порядок списка задач.
+ *
+ * @param done        только выполненные (true), только открытые (false) или все (null)
+ * @param titlePrefix начало названия без учёта регистра или null
+ * @param sort        порядок задач
+ */
+public record TaskFilter(
+        Boolean done,
+        String titlePrefix,
+        TaskSort sort
+) {
+
+    public static final TaskFilter NONE = new TaskFilter(null, null, TaskSort.ID);
+
+    public TaskFilter {
+        titlePrefix = titlePrefix == null || titlePrefix.isEmpty() ? null : titlePrefix;
+        sort = sort == null ? TaskSort.ID : sort;
+    }
+
+    /**
+     * @return true, если фильтров нет и порядок по id
+     */
+    public boolean isDefault() {
+        return done == null && titlePrefix == null && sort == TaskSort.ID;
+    }
+}
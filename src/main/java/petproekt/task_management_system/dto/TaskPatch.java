@@ -0,0 +1,21 @@
+package petproekt.task_management_system.dto;
+
+/**
+ * Изменение одной задачи (PATCH /tasks/{id}). Поля со значением null не меняются.
+ *
+ * @param version версия задачи, которую видел клиент; если задана и не совпадает с текущей, ответ 409
+ */
+public record TaskPatch(
+        String title,
+        String description,
+        Boolean done,
+        Long version
+) {
+
+    /**
+     * @return true, если ни одно поле задачи не меняется
+     */
+    public boolean isEmpty() {
+        return title == null && description == null && done == null;
+    }
+}
@@ -0,0 +1,10 @@
+package petproekt.task_management_system.dto;
+
+/**
+ * Поля задачи в запросах на создание и изменение. null означает "не задано".
+ */
+public record TaskRequest(
+        String title,
+        String description,
+        Boolean done
+) {}
@@ -0,0 +1,16 @@
+package petproekt.task_management_system.dto;
+
+import java.util.UUID;
+
+/**
+ * Задача в результатах поиска.
+ *
+ * @param rank релевантность: чем больше, тем выше задача в выдаче
+ */
+public record TaskSearchResult(
+        UUID id,
+        String title,
+        String description,
+        boolean done,
+        double rank
+) {}
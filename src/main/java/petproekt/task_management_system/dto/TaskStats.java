@@ -0,0 +1,17 @@
+package petproekt.task_management_system.dto;
+
+/**
+ * Количество задач пользователя.
+ *
+ * @param total всего задач
+ * @param open  незавершённых
+ * @param done  выполненных
+ */
+public record TaskStats(
+        long total,
+        long open,
+        long done
+) {
+
+    public static final TaskStats EMPTY = new TaskStats(0, 0, 0);
+}
@@ -0,0 +1,58 @@
+package petproekt.task_management_system.enm;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Поля задачи, которые можно запросить параметром {@code fields=}.
+ * Имя в JSON совпадает с именем атрибута сущности Task.
+ */
+public enum TaskField {
+    ID("id"),
+    TITLE("title"),
+    DESCRIPTION("description"),
+    DONE("done"),
+    CREATED_AT("createdAt"),
+    VERSION("version");
+
+    private final String attribute;
+
+    TaskField(String attribute) {
+        this.attribute = attribute;
+    }
+
+    public String attribute() {
+        return attribute;
+    }
+
+    /**
+     * Разбирает список полей через запятую. id добавляется всегда: он нужен для курсора.
+     *
+     * @param fields значение параметра, например {@code "title,done,createdAt"}; null или пусто — все поля
+     * @return выбранные поля
+     * @throws IllegalArgumentException если указано неизвестное поле
+     */
+    public static Set<TaskField> parse(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return EnumSet.allOf(TaskField.class);
+        }
+        EnumSet<TaskField> result = EnumSet.of(ID);
+        for (String name : fields.split(",")) {
+            String trimmed = name.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            result.add(byAttribute(trimmed));
+        }
+        return result;
+    }
+
+    private static TaskField byAttribute(String name) {
+        for (TaskField field : values()) {
+            if (field.attribute.equalsIgnoreCase(name) || field.name().equalsIgnoreCase(name)) {
+                return field;
+            }
+        }
+        throw new IllegalArgumentException("Неизвестное поле задачи: " + name);
+    }
+}
@@ -0,0 +1,52 @@
+package petproekt.task_management_system.enm;
+
+/**
+ * Порядок задач в GET /tasks, задаётся параметром {@code sort=}.
+ */
+public enum TaskSort {
+    /**
+     * По id — порядок по умолчанию
+     */
+    ID("id"),
+    /**
+     * Сначала старые
+     */
+    CREATED_AT("createdAt"),
+    /**
+     * Сначала новые
+     */
+    CREATED_AT_DESC("-createdAt");
+
+    private final String parameter;
+
+    TaskSort(String parameter) {
+        this.parameter = parameter;
+    }
+
+    public String parameter() {
+        return parameter;
+    }
+
+    /**
+     * @return true, если курсор страницы содержит время создания задачи
+     */
+    public boolean byCreatedAt() {
+        return this != ID;
+    }
+
+    /**
+     * @param sort значение параметра; null или пусто — {@link #ID}
+     * @throws IllegalArgumentException если порядок неизвестен
+     */
+    public static TaskSort parse(String sort) {
+        if (sort == null || sort.isBlank()) {
+            return ID;
+        }
+        for (TaskSort value : values()) {
+            if (value.parameter.equals(sort.trim())) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Неизвестный порядок сортировки: " + sort);
+    }
+}
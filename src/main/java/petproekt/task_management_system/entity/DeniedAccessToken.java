@@ -0,0 +1,25 @@
+package petproekt.task_management_system.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * Отозванный access токен в режиме без сохранения access токенов (jwt.persist-access-tokens: false).
+ * Строка нужна только до exp токена: после этого токен отклоняется и без неё.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "access_token_denylist")
+public class DeniedAccessToken {
+
+    @Id
+    private String jti;
+
+    @Column(nullable = false)
+    private Instant expiresAt;
+}
@@ -1,10 +1,13 @@
 package petproekt.task_management_system.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Entity
@@ -20,9 +23,27 @@ public class Task {
     private String title;
     private boolean done;
 
-    @ManyToOne
+    // Проставляется при сохранении, из запроса не принимается; по нему сортировка "в порядке создания"
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    // Оптимистическая блокировка: PATCH и DELETE с устаревшей версией получают 409
+    @Version
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Column(nullable = false)
+    private long version;
+
+    // Владелец задачи не отдаётся в JSON: в нём хэш пароля, а при создании это ленивая ссылка
+    @JsonIgnore
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id")
     private UserApp userApp;
 
+    @PrePersist
+    void assignCreatedAt() {
+        createdAt = LocalDateTime.now();
+    }
+
 
 }
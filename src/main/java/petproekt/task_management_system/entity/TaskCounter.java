@@ -0,0 +1,32 @@
+package petproekt.task_management_system.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.util.UUID;
+
+/**
+ * Количество задач пользователя. Строку ведут триггеры на таблице task, приложение её только читает.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "task_counters")
+public class TaskCounter {
+
+    @Id
+    @Column(name = "user_id")
+    private UUID userId;
+
+    @Column(nullable = false)
+    private long total;
+
+    @Column(nullable = false)
+    private long done;
+
+    // Растёт при каждом изменении задач пользователя, отдаётся как ETag списка задач
+    @Column(nullable = false)
+    private long version;
+}
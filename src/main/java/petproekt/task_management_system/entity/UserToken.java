@@ -4,6 +4,7 @@ import jakarta.persistence.*;
 import lombok.*;
 import org.hibernate.annotations.CreationTimestamp;
 import petproekt.task_management_system.enm.TokenType;
+import petproekt.task_management_system.security.TokenHashes;
 
 import java.time.LocalDateTime;
 import java.util.UUID;
@@ -21,8 +22,9 @@ public class UserToken {
     @GeneratedValue(strategy = GenerationType.UUID)
     private UUID id;
 
-    @Column(nullable = false, unique = true)
-    private String token;
+    // SHA-256 от JWT: сам токен в базе не хранится
+    @Column(name = "token_hash", nullable = false, unique = true)
+    private byte[] tokenHash;
 
     @ManyToOne(fetch = FetchType.LAZY)
     private UserApp user;
@@ -36,7 +38,7 @@ public class UserToken {
     private LocalDateTime createdAt;
 
     public UserToken(String token, UserApp user, TokenType tokenType) {
-        this.token = token;
+        this.tokenHash = TokenHashes.sha256(token);
         this.user = user;
         this.tokenType = tokenType;
         this.revoked = false;
@@ -0,0 +1,7 @@
+package petproekt.task_management_system.exception;
+
+public class TaskNotFoundException extends RuntimeException {
+    public TaskNotFoundException(String message) {
+        super(message);
+    }
+}
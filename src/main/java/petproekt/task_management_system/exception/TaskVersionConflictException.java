@@ -0,0 +1,7 @@
+package petproekt.task_management_system.exception;
+
+public class TaskVersionConflictException extends RuntimeException {
+    public TaskVersionConflictException(String message) {
+        super(message);
+    }
+}
@@ -1,22 +1,93 @@
 package petproekt.task_management_system.scheduling;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
+import petproekt.task_management_system.config.TokenCleanupProperties;
 import petproekt.task_management_system.enm.TokenType;
+import petproekt.task_management_system.security.JwtUtil;
+import petproekt.task_management_system.security.TokenRevocationIndex;
+import petproekt.task_management_system.service.TokenPartitionService;
 import petproekt.task_management_system.service.UserTokenService;
 
+import java.time.LocalDateTime;
+
+/**
+ * Плановая очистка токенов.
+ * Метрики: {@code token.cleanup} — длительность запуска целиком,
+ * {@code token.cleanup.deleted} — удалённые строки (тег type), {@code token.index.rebuild} — пересборка индекса.
+ */
 @Component
 public class TokenCleanupTask {
 
     private final UserTokenService userTokenService;
+    private final TokenPartitionService partitionService;
+    private final TokenRevocationIndex revocationIndex;
+    private final TokenCleanupProperties properties;
+    private final JwtUtil jwtUtil;
+    private final Timer cleanupTimer;
+    private final Timer rebuildTimer;
+    private final Counter deletedRefreshTokens;
+    private final Counter deletedAccessTokens;
 
-    public TokenCleanupTask(UserTokenService userTokenService) {
+    public TokenCleanupTask(UserTokenService userTokenService,
+                            TokenPartitionService partitionService,
+                            TokenRevocationIndex revocationIndex,
+                            TokenCleanupProperties properties,
+                            JwtUtil jwtUtil,
+                            MeterRegistry meterRegistry) {
         this.userTokenService = userTokenService;
+        this.partitionService = partitionService;
+        this.revocationIndex = revocationIndex;
+        this.properties = properties;
+        this.jwtUtil = jwtUtil;
+        this.cleanupTimer = Timer.builder("token.cleanup")
+                .description("Плановая очистка истёкших токенов")
+                .register(meterRegistry);
+        this.rebuildTimer = Timer.builder("token.index.rebuild")
+                .description("Пересборка индекса отозванных токенов")
+                .register(meterRegistry);
+        this.deletedRefreshTokens = deletedCounter(meterRegistry, TokenType.REFRESH);
+        this.deletedAccessTokens = deletedCounter(meterRegistry, TokenType.ACCESS);
+    }
+
+    // При старте заполняем индекс отозванных токенов, если он не загрузился из файла
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadRevocationIndex() {
+        if (revocationIndex.requiresRebuild()) {
+            rebuildTimer.record(userTokenService::rebuildRevocationIndex);
+        }
     }
 
-    // Каждые 6 часов запускаем очистку токенов старше 24 часов (1440 минут)
+    // Каждые 6 часов удаляем токены старше их срока жизни и пересобираем индекс без удалённых строк.
+    // Удалять раньше exp нельзя: индекс считает неотозванным любой подписанный токен, которого в нём нет
     @Scheduled(fixedRate = 6 * 60 * 60 * 1000)
     public void cleanExpiredTokens() {
-        userTokenService.removeExpiredTokens(1440, TokenType.REFRESH);
+        cleanupTimer.record(this::cleanUp);
+    }
+
+    private void cleanUp() {
+        long refreshMinutes = jwtUtil.getRefreshTokenExpirationMinutes();
+        long accessMinutes = jwtUtil.getAccessTokenExpirationMinutes();
+
+        // В секционированной таблице целые дни старше срока жизни любых токенов удаляются DROP TABLE,
+        // построчный DELETE дочищает DEFAULT-партицию и границу суток
+        partitionService.createUpcomingPartitions(properties.getPartitionsAhead());
+        partitionService.dropPartitionsBefore(LocalDateTime.now().minusMinutes(Math.max(refreshMinutes, accessMinutes)));
+
+        deletedRefreshTokens.increment(userTokenService.removeExpiredTokens(refreshMinutes, TokenType.REFRESH));
+        deletedAccessTokens.increment(userTokenService.removeExpiredTokens(accessMinutes, TokenType.ACCESS));
+        rebuildTimer.record(userTokenService::rebuildRevocationIndex);
+    }
+
+    private static Counter deletedCounter(MeterRegistry meterRegistry, TokenType tokenType) {
+        return Counter.builder("token.cleanup.deleted")
+                .description("Истёкшие токены, удалённые построчно")
+                .tag("type", tokenType.name())
+                .register(meterRegistry);
     }
 }
@@ -0,0 +1,95 @@
+package petproekt.task_management_system.security;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import petproekt.task_management_system.dao.DeniedAccessTokenRepository;
+import petproekt.task_management_system.entity.DeniedAccessToken;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Список отозванных access токенов по jti. Проверка идёт по копии в памяти,
+ * таблица access_token_denylist нужна, чтобы отзыв пережил перезапуск и дошёл
+ * до других экземпляров приложения (копия перечитывается раз в минуту).
+ * Запись хранится только до exp токена, поэтому список остаётся маленьким.
+ */
+@Component
+public class AccessTokenDenyList {
+
+    private final DeniedAccessTokenRepository repository;
+
+    // jti → момент истечения токена
+    private volatile Map<String, Instant> denied = new ConcurrentHashMap<>();
+
+    public AccessTokenDenyList(DeniedAccessTokenRepository repository) {
+        this.repository = repository;
+    }
+
+    /**
+     * @param jti идентификатор токена; null для токенов, выпущенных без jti
+     * @return true, если токен отозван и ещё не истёк
+     */
+    public boolean isDenied(String jti) {
+        if (jti == null) {
+            return false;
+        }
+        Instant expiresAt = denied.get(jti);
+        return expiresAt != null && Instant.now().isBefore(expiresAt);
+    }
+
+    /**
+     * Отзывает access токен до его exp. В копию в памяти jti попадает только после коммита,
+     * чтобы откат транзакции не оставил отзыв, которого нет в базе.
+     *
+     * @param jti       идентификатор токена
+     * @param expiresAt exp токена
+     */
+    @Transactional
+    public void deny(String jti, Instant expiresAt) {
+        if (jti == null || !Instant.now().isBefore(expiresAt)) {
+            return;
+        }
+        repository.save(new DeniedAccessToken(jti, expiresAt));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    denied.put(jti, expiresAt);
+                }
+            });
+        } else {
+            denied.put(jti, expiresAt);
+        }
+    }
+
+    /**
+     * Удаляет истёкшие записи и перечитывает список из базы,
+     * чтобы подхватить отзывы, сделанные другими экземплярами.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelay = 60_000, initialDelay = 60_000)
+    @Transactional
+    public void reload() {
+        Instant now = Instant.now();
+        repository.deleteAllExpired(now);
+        Map<String, Instant> loaded = new ConcurrentHashMap<>();
+        for (DeniedAccessToken token : repository.findAllByExpiresAtAfter(now)) {
+            loaded.put(token.getJti(), token.getExpiresAt());
+        }
+        Map<String, Instant> previous = denied;
+        denied = loaded;
+        // Отзывы, сделанные этим экземпляром во время чтения, не теряем
+        previous.forEach((jti, expiresAt) -> {
+            if (now.isBefore(expiresAt)) {
+                loaded.putIfAbsent(jti, expiresAt);
+            }
+        });
+    }
+}
@@ -0,0 +1,20 @@
+package petproekt.task_management_system.security;
+
+import org.springframework.security.core.userdetails.User;
+
+/**
+ * UserDetails, который помимо username и пароля знает id и роли пользователя.
+ */
+public class AppUserDetails extends User {
+
+    private final AuthenticatedUser authenticatedUser;
+
+    public AppUserDetails(AuthenticatedUser authenticatedUser, String password) {
+        super(authenticatedUser.username(), password, authenticatedUser.authorities());
+        this.authenticatedUser = authenticatedUser;
+    }
+
+    public AuthenticatedUser getAuthenticatedUser() {
+        return authenticatedUser;
+    }
+}
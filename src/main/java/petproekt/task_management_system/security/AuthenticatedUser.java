@@ -0,0 +1,41 @@
+package petproekt.task_management_system.security;
+
+import org.springframework.security.core.AuthenticatedPrincipal;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import petproekt.task_management_system.entity.Role;
+import petproekt.task_management_system.entity.UserApp;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Principal аутентифицированного запроса, который JwtFilter кладёт в SecurityContext.
+ * Контроллеры берут id пользователя отсюда, без повторного поиска по username.
+ *
+ * @param id       UUID пользователя
+ * @param username имя пользователя
+ * @param roles    названия ролей
+ */
+public record AuthenticatedUser(UUID id, String username, Set<String> roles) implements AuthenticatedPrincipal {
+
+    public static AuthenticatedUser of(UserApp user) {
+        Set<String> roles = user.getRoles() == null
+                ? Set.of()
+                : user.getRoles().stream().map(Role::getName).collect(Collectors.toUnmodifiableSet());
+        return new AuthenticatedUser(user.getId(), user.getUsername(), roles);
+    }
+
+    @Override
+    public String getName() {
+        return username;
+    }
+
+    public List<GrantedAuthority> authorities() {
+        return roles.stream()
+                .<GrantedAuthority>map(SimpleGrantedAuthority::new)
+                .toList();
+    }
+}
@@ -0,0 +1,84 @@
+package petproekt.task_management_system.security;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.crypto.bcrypt.BCrypt;
+import org.springframework.stereotype.Component;
+import petproekt.task_management_system.config.PasswordHashingProperties;
+
+/**
+ * Стоимость BCrypt для новых хэшей. При старте замеряется время хэширования на минимальной
+ * стоимости, и выбирается наибольшая стоимость, укладывающаяся в password-hashing.target-hash-time:
+ * каждая следующая единица удваивает время.
+ *
+ * <p>Калибровка зависит от CPU, поэтому экземпляры на разном железе могут выбрать разную стоимость.
+ * Хэши только повышаются до текущей стоимости и никогда не понижаются, а для одинаковой стоимости
+ * на всех экземплярах её нужно закрепить: password-hashing.calibrate=false и password-hashing.strength.
+ */
+@Slf4j
+@Component
+public class BCryptWorkFactor {
+
+    private static final int CALIBRATION_ROUNDS = 3;
+
+    private final int strength;
+
+    public BCryptWorkFactor(PasswordHashingProperties properties) {
+        if (properties.isCalibrate()) {
+            this.strength = calibrate(properties.getTargetHashTime().toNanos(), properties.getMinStrength(), properties.getMaxStrength());
+            log.info("Стоимость BCrypt подобрана под {}: {}. Чтобы закрепить её на всех экземплярах, задайте "
+                    + "PASSWORD_HASHING_CALIBRATE=false и PASSWORD_HASHING_STRENGTH={}", properties.getTargetHashTime(), strength, strength);
+        } else {
+            this.strength = properties.getStrength();
+            log.info("Стоимость BCrypt задана в настройках: {}", strength);
+        }
+    }
+
+    public int strength() {
+        return strength;
+    }
+
+    /**
+     * @param encodedPassword сохранённый хэш
+     * @return true, если хэш посчитан с меньшей стоимостью и его нужно пересчитать при следующем входе.
+     * Более дорогой хэш не понижается: иначе экземпляры с разной калибровкой пересчитывали бы его по очереди
+     */
+    public boolean needsRehash(String encodedPassword) {
+        return costOf(encodedPassword) < strength;
+    }
+
+    /**
+     * Стоимость из хэша вида {@code $2a$10$...}; -1, если формат не распознан.
+     */
+    static int costOf(String encodedPassword) {
+        if (encodedPassword == null || encodedPassword.length() < 7
+                || encodedPassword.charAt(0) != '$' || encodedPassword.charAt(3) != '$' || encodedPassword.charAt(6) != '$') {
+            return -1;
+        }
+        char tens = encodedPassword.charAt(4);
+        char ones = encodedPassword.charAt(5);
+        if (!Character.isDigit(tens) || !Character.isDigit(ones)) {
+            return -1;
+        }
+        return (tens - '0') * 10 + (ones - '0');
+    }
+
+    private static int calibrate(long targetNanos, int minStrength, int maxStrength) {
+        String salt = BCrypt.gensalt(minStrength);
+        // Первый вызов прогревает JIT и в замер не идёт
+        BCrypt.hashpw("calibration", salt);
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < CALIBRATION_ROUNDS; i++) {
+            long start = System.nanoTime();
+            BCrypt.hashpw("calibration", salt);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+
+        int strength = minStrength;
+        long estimated = best;
+        while (strength < maxStrength && estimated * 2 <= targetNanos) {
+            estimated *= 2;
+            strength++;
+        }
+        return strength;
+    }
+}
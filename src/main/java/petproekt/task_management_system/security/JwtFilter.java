@@ -1,34 +1,78 @@
 package petproekt.task_management_system.security;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import lombok.RequiredArgsConstructor;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 import petproekt.task_management_system.enm.TokenType;
+import petproekt.task_management_system.service.CustomUserDetailsService;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Аутентификация запросов по access токену.
+ * Метрика {@code jwt.filter}: время аутентификации с тегом outcome (результат для токена из заголовка);
+ * запросы без токена считает {@code jwt.filter.no-token}, чтобы нулевые замеры не размывали перцентили таймера.
+ */
 @Component
-@RequiredArgsConstructor
 public class JwtFilter extends OncePerRequestFilter {
 
     private final JwtUtil jwtUtil;
-    private final UserDetailsService userDetailsService;
+    private final CustomUserDetailsService userDetailsService;
+    private final VerifiedTokenCache verifiedTokenCache;
+    private final AccessTokenDenyList denyList;
+    private final Map<Outcome, Timer> outcomeTimers = new EnumMap<>(Outcome.class);
+    private final Counter noToken;
 
     private static final String AUTHORIZATION_HEADER = "Authorization";
     private static final String BEARER_PREFIX = "Bearer ";
 
+    private enum Outcome {
+        CACHED,
+        AUTHENTICATED,
+        INVALID,
+        DENIED,
+        USER_NOT_FOUND
+    }
+
+    public JwtFilter(JwtUtil jwtUtil,
+                     CustomUserDetailsService userDetailsService,
+                     VerifiedTokenCache verifiedTokenCache,
+                     AccessTokenDenyList denyList,
+                     MeterRegistry meterRegistry) {
+        this.jwtUtil = jwtUtil;
+        this.userDetailsService = userDetailsService;
+        this.verifiedTokenCache = verifiedTokenCache;
+        this.denyList = denyList;
+        for (Outcome outcome : Outcome.values()) {
+            outcomeTimers.put(outcome, Timer.builder("jwt.filter")
+                    .description("Аутентификация запроса по access токену")
+                    .tag("outcome", outcome.name().toLowerCase())
+                    .register(meterRegistry));
+        }
+        this.noToken = Counter.builder("jwt.filter.no-token")
+                .description("Запросы без access токена в заголовке")
+                .register(meterRegistry);
+    }
+
     @Override
     protected boolean shouldNotFilter(HttpServletRequest request) throws ServletException {
         String path = request.getRequestURI();
         return path.startsWith("/auth/")
+                || path.startsWith("/actuator/")
                 || path.startsWith("/swagger-ui/")
                 || path.startsWith("/v3/api-docs/");
     }
@@ -40,28 +84,65 @@ public class JwtFilter extends OncePerRequestFilter {
 
         String header = request.getHeader(AUTHORIZATION_HEADER);
         if (header == null || !header.startsWith(BEARER_PREFIX)) {
+            noToken.increment();
             filterChain.doFilter(request, response);
             return;
         }
 
         String token = header.substring(BEARER_PREFIX.length());
 
-        try {
-            if (jwtUtil.validateToken(token, TokenType.ACCESS)) {
-                String username = jwtUtil.getUsernameFromToken(token, TokenType.ACCESS);
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+        if (SecurityContextHolder.getContext().getAuthentication() == null) {
+            Authentication authentication = authenticate(token);
+            if (authentication != null) {
+                SecurityContextHolder.getContext().setAuthentication(authentication);
+            }
+        }
+
+        filterChain.doFilter(request, response);
+    }
+
+    /**
+     * Возвращает Authentication для access токена: из кэша, либо после проверки подписи и deny-list по jti.
+     * Для самодостаточного токена principal строится из claims, иначе пользователь загружается по username.
+     * null, если токен невалиден.
+     */
+    private Authentication authenticate(String token) {
+        long start = System.nanoTime();
+        ByteBuffer cacheKey = verifiedTokenCache.keyFor(token);
+        Authentication cached = verifiedTokenCache.get(cacheKey);
+        if (cached != null) {
+            return record(Outcome.CACHED, start, cached);
+        }
 
-                if (userDetails != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                    UsernamePasswordAuthenticationToken authToken =
-                            new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+        TokenVerification verification = jwtUtil.verify(token, TokenType.ACCESS);
+        if (!verification.isValid()) {
+            return record(Outcome.INVALID, start, null);
+        }
 
-                    SecurityContextHolder.getContext().setAuthentication(authToken);
-                }
+        VerifiedToken verified = verification.token();
+        if (denyList.isDenied(verified.jti())) {
+            return record(Outcome.DENIED, start, null);
+        }
+
+        AuthenticatedUser principal;
+        if (verified.isSelfContained()) {
+            principal = new AuthenticatedUser(verified.userId(), verified.subject(), verified.roles());
+        } else {
+            try {
+                principal = userDetailsService.loadUserByUsername(verified.subject()).getAuthenticatedUser();
+            } catch (UsernameNotFoundException e) {
+                return record(Outcome.USER_NOT_FOUND, start, null);
             }
-        } catch (Exception e) {
-            e.getMessage();
         }
 
-        filterChain.doFilter(request, response);
+        Authentication authentication =
+                new UsernamePasswordAuthenticationToken(principal, null, principal.authorities());
+        verifiedTokenCache.put(cacheKey, authentication, verified);
+        return record(Outcome.AUTHENTICATED, start, authentication);
+    }
+
+    private Authentication record(Outcome outcome, long start, Authentication authentication) {
+        outcomeTimers.get(outcome).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return authentication;
     }
 }
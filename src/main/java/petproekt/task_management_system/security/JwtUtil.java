@@ -1,71 +1,231 @@
 package petproekt.task_management_system.security;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.stereotype.Component;
 import petproekt.task_management_system.config.JwtProperties;
 import petproekt.task_management_system.enm.TokenType;
 
+import javax.crypto.Mac;
 import javax.crypto.SecretKey;
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
 import java.util.Date;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
+/**
+ * Выпуск и проверка JWT.
+ * Метрики: {@code jwt.sign} (тег type) и {@code jwt.verify} (теги type и status).
+ */
 @Component
-@RequiredArgsConstructor
 public class JwtUtil {
 
+    private static final String TYPE_CLAIM = "type";
+    private static final String USER_ID_CLAIM = "uid";
+    private static final String ROLES_CLAIM = "roles";
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final ObjectReader CLAIMS_READER =
+            new ObjectMapper().readerFor(new TypeReference<Map<String, Object>>() {});
+
     private final JwtProperties jwtProperties;
 
+    // Ключи создаются один раз при старте, Mac переиспользуются через пул, а не создаются на каждый вызов
+    private final SecretKey accessTokenKey;
+    private final SecretKey refreshTokenKey;
+    private final ReusablePool<Mac> accessTokenMacs;
+    private final ReusablePool<Mac> refreshTokenMacs;
+
+    // Таймеры создаются заранее: поиск в реестре по тегам на каждый вызов дороже самой проверки HMAC
+    private final Map<TokenType, Timer> signTimers = new EnumMap<>(TokenType.class);
+    private final Map<TokenType, Map<TokenVerification.Status, Timer>> verifyTimers = new EnumMap<>(TokenType.class);
+
+    public JwtUtil(JwtProperties jwtProperties, MeterRegistry meterRegistry) {
+        this.jwtProperties = jwtProperties;
+        this.accessTokenKey = Keys.hmacShaKeyFor(jwtProperties.getAccessTokenSecret().getBytes(StandardCharsets.UTF_8));
+        this.refreshTokenKey = Keys.hmacShaKeyFor(jwtProperties.getRefreshTokenSecret().getBytes(StandardCharsets.UTF_8));
+        this.accessTokenMacs = new ReusablePool<>(() -> newMac(accessTokenKey));
+        this.refreshTokenMacs = new ReusablePool<>(() -> newMac(refreshTokenKey));
+
+        for (TokenType type : TokenType.values()) {
+            signTimers.put(type, Timer.builder("jwt.sign")
+                    .description("Выпуск и подпись JWT")
+                    .tag("type", type.name())
+                    .register(meterRegistry));
+            Map<TokenVerification.Status, Timer> byStatus = new EnumMap<>(TokenVerification.Status.class);
+            for (TokenVerification.Status status : TokenVerification.Status.values()) {
+                byStatus.put(status, Timer.builder("jwt.verify")
+                        .description("Проверка подписи, типа и срока действия JWT")
+                        .tag("type", type.name())
+                        .tag("status", status.name())
+                        .register(meterRegistry));
+            }
+            verifyTimers.put(type, byStatus);
+        }
+    }
+
     public String generateToken(String username, TokenType tokenType) {
+        long start = System.nanoTime();
         Date now = new Date();
         Date expiryDate;
         SecretKey key;
 
         if (tokenType == TokenType.ACCESS) {
             expiryDate = new Date(now.getTime() + jwtProperties.getAccessTokenExpiration());
-            key = getAccessTokenKey();
+            key = accessTokenKey;
         } else {
             expiryDate = new Date(now.getTime() + jwtProperties.getRefreshTokenExpiration());
-            key = getRefreshTokenKey();
+            key = refreshTokenKey;
         }
 
-        return Jwts.builder()
+        String token = Jwts.builder()
                 .setSubject(username)
                 .setIssuedAt(now)
                 .setExpiration(expiryDate)
-                .claim("type", tokenType.name())
+                .claim(TYPE_CLAIM, tokenType.name())
                 .signWith(key, SignatureAlgorithm.HS256)
                 .compact();
+        signTimers.get(tokenType).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return token;
     }
 
-    public String getUsernameFromToken(String token, TokenType tokenType) {
-        Claims claims = parseClaims(token, tokenType);
-        verifyTokenType(claims, tokenType);
-        return claims.getSubject();
+    /**
+     * Генерирует access токен с уникальным jti, по которому токен можно отозвать.
+     * В режиме jwt.self-contained-access-tokens в токен дополнительно кладутся
+     * id и роли пользователя, и JwtFilter не обращается к базе.
+     *
+     * @param user пользователь, для которого выпускается токен
+     * @return access токен
+     */
+    public String generateAccessToken(AuthenticatedUser user) {
+        long start = System.nanoTime();
+        Date now = new Date();
+        JwtBuilder builder = Jwts.builder()
+                .setId(UUID.randomUUID().toString())
+                .setSubject(user.username())
+                .setIssuedAt(now)
+                .setExpiration(new Date(now.getTime() + jwtProperties.getAccessTokenExpiration()))
+                .claim(TYPE_CLAIM, TokenType.ACCESS.name());
+        if (jwtProperties.isSelfContainedAccessTokens()) {
+            builder.claim(USER_ID_CLAIM, user.id().toString())
+                    .claim(ROLES_CLAIM, user.roles());
+        }
+        String token = builder.signWith(accessTokenKey, SignatureAlgorithm.HS256).compact();
+        signTimers.get(TokenType.ACCESS).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return token;
     }
 
-    public boolean validateToken(String token, TokenType tokenType) {
+    /**
+     * Проверяет токен за один проход: подпись HS256, тип и срок действия.
+     * Невалидные и просроченные токены возвращаются статусом без выброса исключений.
+     * Заголовок токена не разбирается: совпадение HMAC с нашим ключом уже означает,
+     * что токен выпущен этим сервисом через {@link #generateToken}.
+     *
+     * @param token     JWT в компактной форме
+     * @param tokenType ожидаемый тип токена
+     * @return результат проверки с claims для валидного или просроченного токена
+     */
+    public TokenVerification verify(String token, TokenType tokenType) {
+        long start = System.nanoTime();
+        TokenVerification verification = doVerify(token, tokenType);
+        verifyTimers.get(tokenType).get(verification.status()).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return verification;
+    }
+
+    private TokenVerification doVerify(String token, TokenType tokenType) {
+        if (token == null) {
+            return TokenVerification.MALFORMED;
+        }
+        int firstDot = token.indexOf('.');
+        int secondDot = firstDot < 0 ? -1 : token.indexOf('.', firstDot + 1);
+        // Ровно три непустые части: заголовок, payload и подпись
+        if (firstDot <= 0 || secondDot < 0 || secondDot == firstDot + 1 || secondDot == token.length() - 1
+                || token.indexOf('.', secondDot + 1) >= 0) {
+            return TokenVerification.MALFORMED;
+        }
+
+        byte[] bytes = token.getBytes(StandardCharsets.US_ASCII);
+        ReusablePool<Mac> macs = tokenType == TokenType.ACCESS ? accessTokenMacs : refreshTokenMacs;
+        Mac mac = macs.borrow();
+        byte[] rawSignature;
         try {
-            Claims claims = parseClaims(token, tokenType);
-            verifyTokenType(claims, tokenType);
-            return true;
-        } catch (ExpiredJwtException e) {
-            return false;
-        } catch (JwtException | IllegalArgumentException e) {
-            return false;
+            mac.update(bytes, 0, secondDot);
+            rawSignature = mac.doFinal();
+        } finally {
+            mac.reset();
+            macs.release(mac);
+        }
+        byte[] expectedSignature = Base64.getUrlEncoder().withoutPadding().encode(rawSignature);
+        if (!constantTimeEquals(expectedSignature, bytes, secondDot + 1)) {
+            return TokenVerification.INVALID_SIGNATURE;
+        }
+
+        // Подпись верна, значит payload сформирован нами и корректно декодируется
+        Map<String, Object> claims = readClaims(Arrays.copyOfRange(bytes, firstDot + 1, secondDot));
+        if (claims == null) {
+            return TokenVerification.MALFORMED;
+        }
+        if (!tokenType.name().equals(claims.get(TYPE_CLAIM))) {
+            return TokenVerification.WRONG_TYPE;
         }
+        if (!(claims.get(Claims.SUBJECT) instanceof String subject)
+                || !(claims.get(Claims.EXPIRATION) instanceof Number exp)) {
+            return TokenVerification.MALFORMED;
+        }
+
+        Instant expiresAt = Instant.ofEpochSecond(exp.longValue());
+        Instant issuedAt = claims.get(Claims.ISSUED_AT) instanceof Number iat
+                ? Instant.ofEpochSecond(iat.longValue())
+                : null;
+        UUID userId = claims.get(USER_ID_CLAIM) instanceof String uid ? UUID.fromString(uid) : null;
+        Set<String> roles = claims.get(ROLES_CLAIM) instanceof Collection<?> names
+                ? names.stream().map(String::valueOf).collect(Collectors.toUnmodifiableSet())
+                : Set.of();
+        String jti = claims.get(Claims.ID) instanceof String id ? id : null;
+        VerifiedToken verified = new VerifiedToken(subject, tokenType, issuedAt, expiresAt, userId, roles, jti);
+
+        if (System.currentTimeMillis() > expiresAt.toEpochMilli()) {
+            return new TokenVerification(TokenVerification.Status.EXPIRED, verified);
+        }
+        return new TokenVerification(TokenVerification.Status.VALID, verified);
     }
 
-    public long getRemainingExpirationSeconds(String token, TokenType tokenType) {
-        try {
-            Claims claims = parseClaims(token, tokenType);
-            Date expiration = claims.getExpiration();
-            long diff = expiration.getTime() - System.currentTimeMillis();
-            return Math.max(diff / 1000, 0);
-        } catch (JwtException | IllegalArgumentException e) {
-            return 0;
+    public String getUsernameFromToken(String token, TokenType tokenType) {
+        TokenVerification verification = verify(token, tokenType);
+        if (!verification.isValid()) {
+            throw new JwtException("Invalid token: " + verification.status());
         }
+        return verification.token().subject();
+    }
+
+    public boolean validateToken(String token, TokenType tokenType) {
+        return verify(token, tokenType).isValid();
+    }
+
+    public long getRemainingExpirationSeconds(String token, TokenType tokenType) {
+        TokenVerification verification = verify(token, tokenType);
+        return verification.isValid() ? verification.token().remainingSeconds() : 0;
+    }
+
+    /**
+     * @return true, если выданные access токены сохраняются в user_tokens
+     */
+    public boolean isPersistAccessTokens() {
+        return jwtProperties.isPersistAccessTokens();
     }
 
     // --- Получение времени жизни access токена в миллисекундах ---
@@ -89,27 +249,32 @@ public class JwtUtil {
     }
 
 
-    private Claims parseClaims(String token, TokenType tokenType) {
-        SecretKey key = tokenType == TokenType.ACCESS ? getAccessTokenKey() : getRefreshTokenKey();
-        return Jwts.parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-    }
-
-    private void verifyTokenType(Claims claims, TokenType expectedType) {
-        String type = claims.get("type", String.class);
-        if (type == null || !type.equals(expectedType.name())) {
-            throw new JwtException("Invalid token type");
+    private static Map<String, Object> readClaims(byte[] encodedPayload) {
+        try {
+            return CLAIMS_READER.readValue(Base64.getUrlDecoder().decode(encodedPayload));
+        } catch (IOException | IllegalArgumentException e) {
+            return null;
         }
     }
 
-    private SecretKey getAccessTokenKey() {
-        return Keys.hmacShaKeyFor(jwtProperties.getAccessTokenSecret().getBytes(StandardCharsets.UTF_8));
+    private static boolean constantTimeEquals(byte[] expected, byte[] token, int offset) {
+        if (token.length - offset != expected.length) {
+            return false;
+        }
+        int diff = 0;
+        for (int i = 0; i < expected.length; i++) {
+            diff |= expected[i] ^ token[offset + i];
+        }
+        return diff == 0;
     }
 
-    private SecretKey getRefreshTokenKey() {
-        return Keys.hmacShaKeyFor(jwtProperties.getRefreshTokenSecret().getBytes(StandardCharsets.UTF_8));
+    private static Mac newMac(SecretKey key) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Не удалось инициализировать " + HMAC_ALGORITHM, e);
+        }
     }
 }
@@ -0,0 +1,147 @@
+package petproekt.task_management_system.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+import petproekt.task_management_system.config.PasswordHashingProperties;
+
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Отдельный ограниченный пул для BCrypt, чтобы всплеск логинов не занимал потоки Tomcat.
+ * При заполненной очереди задача отклоняется сразу ({@link RejectedExecutionException}
+ * в возвращённом future), и контроллер отвечает 503.
+ *
+ * <p>Метрики: {@code auth.password.queue} — время ожидания в очереди,
+ * {@code auth.password.hash} — время самого хэширования (тег operation: verify при логине, encode при регистрации), {@code auth.password.queue.size} —
+ * текущая глубина очереди, {@code auth.password.rejected} — отклонённые задачи.
+ */
+@Component
+public class PasswordHashingExecutor implements DisposableBean {
+
+    private final PasswordEncoder passwordEncoder;
+    private final BCryptWorkFactor workFactor;
+    private final ThreadPoolExecutor executor;
+    private final Timer queueTimer;
+    private final Timer verifyTimer;
+    private final Timer encodeTimer;
+    private final Counter rejected;
+
+    // Хэш для несуществующих пользователей: проверка занимает то же время, что и для настоящих
+    private volatile String dummyHash;
+
+    public PasswordHashingExecutor(PasswordEncoder passwordEncoder,
+                                   BCryptWorkFactor workFactor,
+                                   PasswordHashingProperties properties,
+                                   MeterRegistry meterRegistry) {
+        this.passwordEncoder = passwordEncoder;
+        this.workFactor = workFactor;
+        this.executor = new ThreadPoolExecutor(
+                properties.getThreads(), properties.getThreads(),
+                0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(properties.getQueueCapacity()),
+                new CustomizableThreadFactory("bcrypt-"),
+                new ThreadPoolExecutor.AbortPolicy());
+
+        this.queueTimer = Timer.builder("auth.password.queue")
+                .description("Время ожидания задачи хэширования пароля в очереди")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        this.verifyTimer = hashTimer(meterRegistry, "verify");
+        this.encodeTimer = hashTimer(meterRegistry, "encode");
+        this.rejected = Counter.builder("auth.password.rejected")
+                .description("Задачи хэширования, отклонённые из-за заполненной очереди")
+                .register(meterRegistry);
+        Gauge.builder("auth.password.queue.size", executor, pool -> pool.getQueue().size())
+                .description("Количество задач хэширования в очереди")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Проверяет пароль и, если он верен, а хэш посчитан с меньшей стоимостью BCrypt,
+     * сразу считает новый хэш в том же потоке пула.
+     *
+     * @param rawPassword     пароль из запроса
+     * @param encodedPassword хэш из базы; null для несуществующего пользователя
+     * @return future с результатом проверки и новым хэшем (null, если пересчёт не нужен)
+     */
+    public CompletableFuture<PasswordCheck> verify(String rawPassword, String encodedPassword) {
+        return submit(verifyTimer, () -> {
+            if (encodedPassword == null) {
+                passwordEncoder.matches(rawPassword, dummyHash());
+                return PasswordCheck.MISMATCH;
+            }
+            if (!passwordEncoder.matches(rawPassword, encodedPassword)) {
+                return PasswordCheck.MISMATCH;
+            }
+            String upgradedHash = workFactor.needsRehash(encodedPassword) ? passwordEncoder.encode(rawPassword) : null;
+            return new PasswordCheck(true, upgradedHash);
+        });
+    }
+
+    /**
+     * Хэширует пароль в пуле BCrypt.
+     *
+     * @param rawPassword пароль в открытом виде
+     * @return future с хэшем
+     */
+    public CompletableFuture<String> encode(String rawPassword) {
+        return submit(encodeTimer, () -> passwordEncoder.encode(rawPassword));
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdown();
+    }
+
+    private <T> CompletableFuture<T> submit(Timer hashTimer, Supplier<T> task) {
+        long enqueuedAt = System.nanoTime();
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                queueTimer.record(System.nanoTime() - enqueuedAt, TimeUnit.NANOSECONDS);
+                return hashTimer.record(task);
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private static Timer hashTimer(MeterRegistry meterRegistry, String operation) {
+        return Timer.builder("auth.password.hash")
+                .description("Время хэширования или проверки пароля")
+                .tag("operation", operation)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Результат проверки пароля.
+     *
+     * @param matched      пароль верен
+     * @param upgradedHash новый хэш с текущей стоимостью BCrypt; null, если пересчёт не нужен
+     */
+    public record PasswordCheck(boolean matched, String upgradedHash) {
+        static final PasswordCheck MISMATCH = new PasswordCheck(false, null);
+    }
+
+    private String dummyHash() {
+        String hash = dummyHash;
+        if (hash == null) {
+            hash = passwordEncoder.encode(UUID.randomUUID().toString());
+            dummyHash = hash;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,33 @@
+package petproekt.task_management_system.security;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Supplier;
+
+/**
+ * Пул переиспользуемых объектов без блокировок (Mac, MessageDigest).
+ * Заменяет ThreadLocal: с виртуальными потоками каждый запрос идёт в новом потоке,
+ * и ThreadLocal создавал бы дорогой экземпляр на каждый запрос. Пул растёт
+ * до числа одновременных пользователей и дальше не создаёт новых объектов.
+ */
+final class ReusablePool<T> {
+
+    private final Queue<T> idle = new ConcurrentLinkedQueue<>();
+    private final Supplier<T> factory;
+
+    ReusablePool(Supplier<T> factory) {
+        this.factory = factory;
+    }
+
+    T borrow() {
+        T instance = idle.poll();
+        return instance != null ? instance : factory.get();
+    }
+
+    /**
+     * Возвращает объект в пул; объект должен быть в исходном состоянии (после doFinal/digest или reset).
+     */
+    void release(T instance) {
+        idle.offer(instance);
+    }
+}
@@ -0,0 +1,36 @@
+package petproekt.task_management_system.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * SHA-256 хэши токенов: используются как компактные ключи вместо самих JWT.
+ */
+public final class TokenHashes {
+
+    private static final ReusablePool<MessageDigest> SHA_256 = new ReusablePool<>(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 недоступен", e);
+        }
+    });
+
+    private TokenHashes() {
+    }
+
+    /**
+     * @param token JWT токен
+     * @return 32-байтовый SHA-256 от UTF-8 представления токена
+     */
+    public static byte[] sha256(String token) {
+        byte[] bytes = token.getBytes(StandardCharsets.UTF_8);
+        MessageDigest digest = SHA_256.borrow();
+        try {
+            return digest.digest(bytes);
+        } finally {
+            SHA_256.release(digest);
+        }
+    }
+}
@@ -0,0 +1,375 @@
+package petproekt.task_management_system.security;
+
+import lombok.extern.slf4j.Slf4j;
+import petproekt.task_management_system.enm.TokenType;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Журнал очереди {@link TokenWriteBehind}: файлы-сегменты из записей фиксированной длины.
+ * Токен дописывается в журнал до ответа клиенту, сегмент удаляется, когда все его токены записаны в базу.
+ * Сегменты удаляются строго по порядку, поэтому отзыв ещё не записанного токена не может
+ * пропасть раньше самого токена.
+ *
+ * <p>При включённом fsync записи сбрасываются на диск группами: пока один поток ждёт fsync,
+ * остальные дописывают свои записи и ждут следующего, который покроет их все сразу.
+ * Блокировка — {@link ReentrantLock}, а не монитор, чтобы виртуальные потоки не закреплялись
+ * за несущим потоком на время ожидания.
+ *
+ * <p>Формат записи ({@value #RECORD_SIZE} байт): вид записи, SHA-256 токена, id строки, id владельца,
+ * тип токена, created_at (секунды и наносекунды UTC), CRC32 предыдущих байт. Запись с неверной
+ * контрольной суммой (оборванная при падении) и всё после неё в сегменте отбрасываются.
+ */
+@Slf4j
+final class TokenJournal implements Closeable {
+
+    static final byte TOKEN = 1;
+    static final byte REVOKE = 2;
+
+    private static final int HASH_SIZE = 32;
+    private static final int RECORD_SIZE = 1 + HASH_SIZE + 16 + 16 + 1 + 8 + 4 + 4;
+    private static final String SUFFIX = ".seg";
+    private static final TokenType[] TOKEN_TYPES = TokenType.values();
+
+    private final Path dir;
+    private final int segmentRecords;
+    private final boolean fsync;
+    private final ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+    private final CRC32 crc = new CRC32();
+    private final ReentrantLock lock = new ReentrantLock();
+    // Сигналит об окончании очередного fsync
+    private final Condition forced = lock.newCondition();
+
+    // Открытые сегменты по порядку: последний — текущий, в него идут новые записи
+    private final ArrayDeque<Segment> segments = new ArrayDeque<>();
+    private final List<Path> replayed = new ArrayList<>();
+    private long nextSequence;
+
+    // Номер последней дописанной записи и последней, сброшенной на диск; идёт ли сейчас fsync
+    private long written;
+    private long durable;
+    private boolean forcing;
+
+    TokenJournal(Path dir, int segmentRecords, boolean fsync) {
+        this.dir = dir;
+        this.segmentRecords = segmentRecords;
+        this.fsync = fsync;
+    }
+
+    /**
+     * Запись журнала.
+     *
+     * @param kind {@link #TOKEN} или {@link #REVOKE}; у отзыва заполнен только tokenHash
+     */
+    record Entry(byte kind, byte[] tokenHash, UUID id, UUID userId, TokenType tokenType, LocalDateTime createdAt) {}
+
+    /**
+     * Читает сегменты, оставшиеся от прошлого запуска. Новые записи пойдут в сегменты с большими номерами.
+     *
+     * @return записи в порядке добавления
+     */
+    List<Entry> replay() throws IOException {
+        lock.lock();
+        try {
+            return doReplay();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private List<Entry> doReplay() throws IOException {
+        Files.createDirectories(dir);
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(dir)) {
+            files = listing.filter(path -> path.getFileName().toString().endsWith(SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+
+        List<Entry> entries = new ArrayList<>();
+        for (Path file : files) {
+            readSegment(file, entries);
+            nextSequence = Math.max(nextSequence, sequenceOf(file) + 1);
+            replayed.add(file);
+        }
+        return entries;
+    }
+
+    /**
+     * Удаляет сегменты прошлого запуска после того, как их записи применены к базе.
+     */
+    void discardReplayed() throws IOException {
+        lock.lock();
+        try {
+            for (Path file : replayed) {
+                Files.deleteIfExists(file);
+            }
+            replayed.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Возвращается, когда запись на диске (при включённом fsync).
+     *
+     * @return номер сегмента, который нужно передать в {@link #release} после записи токена в базу
+     */
+    long appendToken(UUID id, byte[] tokenHash, UUID userId, TokenType tokenType,
+                     LocalDateTime createdAt) throws IOException {
+        lock.lock();
+        try {
+            Segment segment = writableSegment();
+            record.clear();
+            record.put(TOKEN).put(tokenHash)
+                    .putLong(id.getMostSignificantBits()).putLong(id.getLeastSignificantBits())
+                    .putLong(userId.getMostSignificantBits()).putLong(userId.getLeastSignificantBits())
+                    .put((byte) tokenType.ordinal())
+                    .putLong(createdAt.toEpochSecond(ZoneOffset.UTC)).putInt(createdAt.getNano());
+            long ticket = write(segment);
+            // Считается до ожидания fsync, чтобы сегмент не удалили, пока lock отпущен
+            segment.outstanding++;
+            try {
+                awaitDurable(ticket);
+            } catch (IOException e) {
+                // Токен будет записан в базу сразу, в журнале его ждать не нужно
+                segment.outstanding--;
+                throw e;
+            }
+            return segment.sequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void appendRevoke(byte[] tokenHash) throws IOException {
+        lock.lock();
+        try {
+            Segment segment = writableSegment();
+            record.clear();
+            record.put(REVOKE).put(tokenHash).put(new byte[RECORD_SIZE - 4 - 1 - HASH_SIZE]);
+            awaitDurable(write(segment));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Отмечает токены сегмента записанными в базу и удаляет полностью записанные сегменты с начала журнала.
+     */
+    void release(long sequence, int count) {
+        lock.lock();
+        try {
+            for (Segment segment : segments) {
+                if (segment.sequence == sequence) {
+                    segment.outstanding -= count;
+                    break;
+                }
+            }
+            while (!segments.isEmpty()) {
+                Segment head = segments.peekFirst();
+                boolean current = head == segments.peekLast() && head.records < segmentRecords;
+                if (head.outstanding > 0 || current) {
+                    break;
+                }
+                if (forcing && head == segments.peekLast()) {
+                    forced.awaitUninterruptibly();
+                    continue;
+                }
+                segments.pollFirst();
+                head.delete();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int segmentCount() {
+        lock.lock();
+        try {
+            return segments.size() + replayed.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Закрывает журнал. Полностью записанные сегменты с начала журнала удаляются,
+     * начиная с первого незаписанного все остаются до следующего запуска.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            awaitForceFinished();
+            while (!segments.isEmpty() && segments.peekFirst().outstanding == 0) {
+                segments.pollFirst().delete();
+            }
+            segments.forEach(Segment::close);
+            segments.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Вызывается под lock
+    private Segment writableSegment() throws IOException {
+        Segment segment = segments.peekLast();
+        // fsync вне блокировки идёт только по последнему сегменту; закрывать его до конца fsync нельзя
+        while (segment != null && segment.records == segmentRecords && forcing) {
+            forced.awaitUninterruptibly();
+            segment = segments.peekLast();
+        }
+        if (segment == null || segment.records == segmentRecords) {
+            if (segment != null) {
+                // Заполненный сегмент сбрасывается здесь же: дальше fsync идёт только по текущему
+                if (fsync) {
+                    segment.channel.force(false);
+                    durable = written;
+                    forced.signalAll();
+                }
+                segment.close();
+            }
+            Files.createDirectories(dir);
+            segment = new Segment(nextSequence, dir.resolve(String.format("%020d%s", nextSequence, SUFFIX)));
+            nextSequence++;
+            segments.addLast(segment);
+        }
+        return segment;
+    }
+
+    /**
+     * Дописывает запись в сегмент без fsync. Вызывается под lock.
+     *
+     * @return номер записи для {@link #awaitDurable}
+     */
+    private long write(Segment segment) throws IOException {
+        crc.reset();
+        crc.update(record.array(), 0, RECORD_SIZE - 4);
+        record.putInt((int) crc.getValue());
+        record.flip();
+        while (record.hasRemaining()) {
+            segment.channel.write(record);
+        }
+        segment.records++;
+        return ++written;
+    }
+
+    /**
+     * Ждёт, пока запись с номером ticket окажется на диске. Если fsync никто не делает, поток сам
+     * сбрасывает текущий сегмент вне блокировки — вместе со всеми записями, дописанными к этому моменту.
+     * Вызывается под lock.
+     */
+    private void awaitDurable(long ticket) throws IOException {
+        if (!fsync) {
+            return;
+        }
+        while (durable < ticket) {
+            if (forcing) {
+                forced.awaitUninterruptibly();
+                continue;
+            }
+            long target = written;
+            Segment segment = segments.peekLast();
+            forcing = true;
+            lock.unlock();
+            try {
+                if (segment != null) {
+                    segment.channel.force(false);
+                }
+            } finally {
+                lock.lock();
+                forcing = false;
+                forced.signalAll();
+            }
+            durable = Math.max(durable, target);
+        }
+    }
+
+    // Сегмент нельзя закрыть, пока по нему идёт fsync вне блокировки. Вызывается под lock
+    private void awaitForceFinished() {
+        while (forcing) {
+            forced.awaitUninterruptibly();
+        }
+    }
+
+    private void readSegment(Path file, List<Entry> entries) throws IOException {
+        byte[] bytes = Files.readAllBytes(file);
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        CRC32 checksum = new CRC32();
+        for (int offset = 0; offset + RECORD_SIZE <= bytes.length; offset += RECORD_SIZE) {
+            checksum.reset();
+            checksum.update(bytes, offset, RECORD_SIZE - 4);
+            if ((int) checksum.getValue() != buffer.getInt(offset + RECORD_SIZE - 4)) {
+                log.warn("Журнал токенов {}: повреждённая запись на смещении {}, остаток сегмента пропущен", file, offset);
+                return;
+            }
+            buffer.position(offset);
+            byte kind = buffer.get();
+            byte[] tokenHash = new byte[HASH_SIZE];
+            buffer.get(tokenHash);
+            if (kind == REVOKE) {
+                entries.add(new Entry(REVOKE, tokenHash, null, null, null, null));
+                continue;
+            }
+            UUID id = new UUID(buffer.getLong(), buffer.getLong());
+            UUID userId = new UUID(buffer.getLong(), buffer.getLong());
+            TokenType tokenType = TOKEN_TYPES[buffer.get()];
+            LocalDateTime createdAt = LocalDateTime.ofEpochSecond(buffer.getLong(), buffer.getInt(), ZoneOffset.UTC);
+            entries.add(new Entry(TOKEN, tokenHash, id, userId, tokenType, createdAt));
+        }
+    }
+
+    private static long sequenceOf(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+    }
+
+    private static final class Segment {
+        final long sequence;
+        final Path path;
+        final FileChannel channel;
+        int records;
+        // Токены сегмента, ещё не записанные в базу
+        int outstanding;
+
+        Segment(long sequence, Path path) throws IOException {
+            this.sequence = sequence;
+            this.path = path;
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        }
+
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.warn("Не удалось закрыть сегмент журнала токенов {}", path, e);
+            }
+        }
+
+        void delete() {
+            close();
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                log.warn("Не удалось удалить сегмент журнала токенов {}", path, e);
+            }
+        }
+    }
+}
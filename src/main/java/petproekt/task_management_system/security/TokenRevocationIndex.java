@@ -0,0 +1,405 @@
+package petproekt.task_management_system.security;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import petproekt.task_management_system.config.RevocationIndexProperties;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Индекс отозванных токенов: Bloom-фильтр и точная хэш-таблица SHA-256 хэшей,
+ * отображённые в файл через mmap, чтобы переживать перезапуск.
+ * Ответ "не отозван" даётся без запроса в базу: отрицательный ответ фильтра достаточен,
+ * положительный уточняется по хэш-таблице.
+ *
+ * <p>Формат файла: заголовок {@value #HEADER_SIZE} байт, затем биты фильтра,
+ * затем таблица с открытой адресацией по {@value #HASH_SIZE} байт на слот (пустой слот — нули).
+ *
+ * <p>Записи в отображение не сбрасываются на диск по одной, поэтому после падения процесса или ОС
+ * в файле может не оказаться закоммиченных отзывов. Файл переиспользуется при старте, только если
+ * в заголовке стоит отметка штатного закрытия: она ставится в {@link #destroy()} после force()
+ * и снимается сразу после загрузки, ещё до первого нового отзыва.
+ */
+@Slf4j
+@Component
+public class TokenRevocationIndex implements DisposableBean {
+
+    public enum Status {
+        REVOKED,
+        NOT_REVOKED,
+        // Индекс выключен или ещё не построен — нужно спросить базу
+        UNKNOWN
+    }
+
+    private static final int MAGIC = 0x52564B31; // "RVK1"
+    private static final int HEADER_SIZE = 64;
+    private static final int HASH_SIZE = 32;
+    private static final int MAGIC_OFFSET = 0;
+    private static final int BLOOM_BITS_OFFSET = 8;
+    private static final int HASH_FUNCTIONS_OFFSET = 16;
+    private static final int SLOTS_OFFSET = 20;
+    private static final int SIZE_OFFSET = 24;
+    private static final int CLEAN_SHUTDOWN_OFFSET = 28;
+    private static final int CLEAN_SHUTDOWN = 1;
+    private static final double MAX_LOAD_FACTOR = 0.75;
+    private static final VarHandle LONG_VIEW = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+    private final RevocationIndexProperties properties;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Текущее отображение файла; поля меняются только под write-lock
+    private MappedByteBuffer buffer;
+    private long bloomBits;
+    private int hashFunctions;
+    private int slots;
+    private int size;
+
+    private volatile boolean ready;
+
+    // Отзывы, пришедшие во время перестроения из базы; применяются к новому индексу
+    private List<byte[]> rebuildBacklog;
+
+    public TokenRevocationIndex(RevocationIndexProperties properties) {
+        this.properties = properties;
+        if (properties.isEnabled() && !properties.isRebuildOnStartup()) {
+            ready = tryLoad(properties.getFile());
+        }
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * @return true, если индекс включён, но ещё не построен и его нужно заполнить из базы
+     */
+    public boolean requiresRebuild() {
+        return properties.isEnabled() && !ready;
+    }
+
+    /**
+     * @param tokenHash SHA-256 токена
+     * @return отозван ли токен, или {@link Status#UNKNOWN}, если индекс недоступен
+     */
+    public Status check(byte[] tokenHash) {
+        if (!ready) {
+            return Status.UNKNOWN;
+        }
+        lock.readLock().lock();
+        try {
+            return mightContain(tokenHash) && findSlot(tokenHash) >= 0 ? Status.REVOKED : Status.NOT_REVOKED;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Добавляет токен в индекс после коммита текущей транзакции (или сразу, если транзакции нет),
+     * чтобы откат не оставил в индексе токен, который в базе не отозван.
+     *
+     * @param tokenHash SHA-256 отозванного токена
+     */
+    public void addAfterCommit(byte[] tokenHash) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    add(tokenHash);
+                }
+            });
+        } else {
+            add(tokenHash);
+        }
+    }
+
+    /**
+     * Полностью перестраивает индекс по списку отозванных токенов из базы.
+     * Источник открывается только после того, как начат сбор отзывов во время перестроения:
+     * отзыв, закоммиченный до снимка запроса, попадёт в снимок, а после — в backlog.
+     *
+     * @param tokenHashes открывает поток SHA-256 всех отозванных токенов; поток закрывается здесь
+     */
+    public void rebuild(Supplier<? extends Stream<byte[]>> tokenHashes) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            rebuildBacklog = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        List<byte[]> entries = new ArrayList<>();
+        try (Stream<byte[]> source = tokenHashes.get()) {
+            source.forEach(entries::add);
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                rebuildBacklog = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        // Backlog, новый файл и закрытие backlog — под одной блокировкой: add() между ними
+        // записал бы отзыв в заменяемый файл или, пока индекс не готов, никуда
+        lock.writeLock().lock();
+        try {
+            entries.addAll(rebuildBacklog);
+            createFile(entries, Math.max(properties.getExpectedEntries(), entries.size() * 2));
+            ready = true;
+            log.info("Индекс отозванных токенов перестроен: {} записей", size);
+        } catch (IOException e) {
+            ready = false;
+            log.warn("Не удалось построить индекс отозванных токенов, проверки идут через базу", e);
+        } finally {
+            rebuildBacklog = null;
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Сбрасывает индекс на диск и отмечает файл закрытым штатно. После этого индекс отвечает
+     * {@link Status#UNKNOWN} и не принимает отзывы, чтобы не изменить файл после отметки.
+     */
+    @Override
+    public void destroy() {
+        lock.writeLock().lock();
+        try {
+            if (buffer != null && ready) {
+                buffer.force();
+                buffer.putInt(CLEAN_SHUTDOWN_OFFSET, CLEAN_SHUTDOWN);
+                buffer.force();
+            }
+            ready = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void add(byte[] tokenHash) {
+        lock.writeLock().lock();
+        try {
+            if (rebuildBacklog != null) {
+                rebuildBacklog.add(tokenHash);
+            }
+            if (!ready) {
+                return;
+            }
+            int slot = findSlot(tokenHash);
+            if (slot >= 0) {
+                return;
+            }
+            if (size + 1 > slots * MAX_LOAD_FACTOR) {
+                List<byte[]> entries = entries();
+                entries.add(tokenHash);
+                createFile(entries, entries.size() * 2);
+                return;
+            }
+            writeEntry(-slot - 1, tokenHash);
+        } catch (IOException e) {
+            ready = false;
+            log.warn("Не удалось расширить индекс отозванных токенов, проверки идут через базу", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Создаёт новый файл индекса рядом со старым, заполняет его и атомарно подменяет старый.
+     * Старое отображение остаётся валидным до сборки мусора, поэтому читатели не видят обрезанный файл.
+     */
+    private void createFile(List<byte[]> entries, int capacity) throws IOException {
+        long newBloomBits = bloomBitsFor(capacity, properties.getFalsePositiveRate());
+        int newHashFunctions = Math.max(1, (int) Math.round((double) newBloomBits / capacity * Math.log(2)));
+        int newSlots = nextPowerOfTwo(capacity * 2);
+        long length = HEADER_SIZE + newBloomBits / 8 + (long) newSlots * HASH_SIZE;
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("Индекс на " + capacity + " записей не помещается в одно отображение");
+        }
+
+        Path file = properties.getFile();
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        if (file.toAbsolutePath().getParent() != null) {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+        }
+        MappedByteBuffer newBuffer;
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            newBuffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+        }
+        newBuffer.putInt(MAGIC_OFFSET, MAGIC);
+        newBuffer.putLong(BLOOM_BITS_OFFSET, newBloomBits);
+        newBuffer.putInt(HASH_FUNCTIONS_OFFSET, newHashFunctions);
+        newBuffer.putInt(SLOTS_OFFSET, newSlots);
+        newBuffer.putInt(SIZE_OFFSET, 0);
+        newBuffer.putInt(CLEAN_SHUTDOWN_OFFSET, 0);
+
+        buffer = newBuffer;
+        bloomBits = newBloomBits;
+        hashFunctions = newHashFunctions;
+        slots = newSlots;
+        size = 0;
+        for (byte[] entry : entries) {
+            int slot = findSlot(entry);
+            if (slot < 0) {
+                writeEntry(-slot - 1, entry);
+            }
+        }
+        buffer.force();
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private boolean tryLoad(Path file) {
+        if (!Files.isRegularFile(file)) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long length = channel.size();
+            if (length < HEADER_SIZE || length > Integer.MAX_VALUE) {
+                return false;
+            }
+            MappedByteBuffer loaded = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+            long loadedBloomBits = loaded.getLong(BLOOM_BITS_OFFSET);
+            int loadedSlots = loaded.getInt(SLOTS_OFFSET);
+            if (loaded.getInt(MAGIC_OFFSET) != MAGIC
+                    || loadedBloomBits <= 0 || loadedBloomBits % 64 != 0
+                    || Integer.bitCount(loadedSlots) != 1
+                    || length != HEADER_SIZE + loadedBloomBits / 8 + (long) loadedSlots * HASH_SIZE) {
+                log.warn("Файл индекса отозванных токенов {} повреждён и будет перестроен", file);
+                return false;
+            }
+            if (loaded.getInt(CLEAN_SHUTDOWN_OFFSET) != CLEAN_SHUTDOWN) {
+                log.warn("Файл индекса отозванных токенов {} не был закрыт штатно и будет перестроен", file);
+                return false;
+            }
+            // Отметка снимается до первого нового отзыва: если процесс упадёт, файл не будет переиспользован
+            loaded.putInt(CLEAN_SHUTDOWN_OFFSET, 0);
+            loaded.force();
+            buffer = loaded;
+            bloomBits = loadedBloomBits;
+            hashFunctions = loaded.getInt(HASH_FUNCTIONS_OFFSET);
+            slots = loadedSlots;
+            size = loaded.getInt(SIZE_OFFSET);
+            return true;
+        } catch (IOException e) {
+            log.warn("Не удалось открыть индекс отозванных токенов {}", file, e);
+            return false;
+        }
+    }
+
+    private boolean mightContain(byte[] tokenHash) {
+        long h1 = longAt(tokenHash, 0);
+        long h2 = longAt(tokenHash, 8);
+        for (int i = 0; i < hashFunctions; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bloomBits);
+            int value = buffer.get(HEADER_SIZE + (int) (bit >>> 3));
+            if ((value & (1 << (bit & 7))) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return номер слота с этим хэшем, либо {@code -(свободный слот) - 1}, если хэша нет
+     */
+    private int findSlot(byte[] tokenHash) {
+        int mask = slots - 1;
+        int slot = (int) (longAt(tokenHash, 16) & mask);
+        int tableOffset = tableOffset();
+        for (int probe = 0; probe < slots; probe++) {
+            int offset = tableOffset + slot * HASH_SIZE;
+            boolean empty = true;
+            boolean matches = true;
+            for (int i = 0; i < HASH_SIZE; i += Long.BYTES) {
+                long stored = buffer.getLong(offset + i);
+                empty &= stored == 0;
+                matches &= stored == longAt(tokenHash, i);
+            }
+            if (matches) {
+                return slot;
+            }
+            if (empty) {
+                return -slot - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        throw new IllegalStateException("Хэш-таблица индекса переполнена");
+    }
+
+    private void writeEntry(int slot, byte[] tokenHash) {
+        long h1 = longAt(tokenHash, 0);
+        long h2 = longAt(tokenHash, 8);
+        for (int i = 0; i < hashFunctions; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bloomBits);
+            int index = HEADER_SIZE + (int) (bit >>> 3);
+            buffer.put(index, (byte) (buffer.get(index) | (1 << (bit & 7))));
+        }
+        buffer.put(tableOffset() + slot * HASH_SIZE, tokenHash);
+        size++;
+        buffer.putInt(SIZE_OFFSET, size);
+    }
+
+    private List<byte[]> entries() {
+        List<byte[]> entries = new ArrayList<>(size + 1);
+        int tableOffset = tableOffset();
+        for (int slot = 0; slot < slots; slot++) {
+            byte[] entry = new byte[HASH_SIZE];
+            buffer.get(tableOffset + slot * HASH_SIZE, entry);
+            if (!isZero(entry)) {
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
+
+    private int tableOffset() {
+        return HEADER_SIZE + (int) (bloomBits / 8);
+    }
+
+    private static long bloomBitsFor(int capacity, double falsePositiveRate) {
+        long bits = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        // Округляем вверх до целого числа long-слов
+        return Math.max(64, (bits + 63) / 64 * 64);
+    }
+
+    private static int nextPowerOfTwo(int value) {
+        return value <= 1 ? 1 : Integer.highestOneBit(value - 1) << 1;
+    }
+
+    private static long longAt(byte[] bytes, int offset) {
+        return (long) LONG_VIEW.get(bytes, offset);
+    }
+
+    private static boolean isZero(byte[] bytes) {
+        for (byte b : bytes) {
+            if (b != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
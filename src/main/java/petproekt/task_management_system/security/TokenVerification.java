@@ -0,0 +1,27 @@
+package petproekt.task_management_system.security;
+
+/**
+ * Результат проверки JWT через {@link JwtUtil#verify}.
+ * Ошибки проверки возвращаются статусом, а не исключением.
+ *
+ * @param status результат проверки
+ * @param token  проверенные claims; заполнены для {@link Status#VALID} и {@link Status#EXPIRED}
+ */
+public record TokenVerification(Status status, VerifiedToken token) {
+
+    public enum Status {
+        VALID,
+        EXPIRED,
+        WRONG_TYPE,
+        INVALID_SIGNATURE,
+        MALFORMED
+    }
+
+    static final TokenVerification MALFORMED = new TokenVerification(Status.MALFORMED, null);
+    static final TokenVerification INVALID_SIGNATURE = new TokenVerification(Status.INVALID_SIGNATURE, null);
+    static final TokenVerification WRONG_TYPE = new TokenVerification(Status.WRONG_TYPE, null);
+
+    public boolean isValid() {
+        return status == Status.VALID;
+    }
+}
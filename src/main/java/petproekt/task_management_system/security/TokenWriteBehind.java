@@ -0,0 +1,454 @@
+package petproekt.task_management_system.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import petproekt.task_management_system.config.TokenWriteBehindProperties;
+import petproekt.task_management_system.enm.TokenType;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Отложенная запись новых токенов в user_tokens (token-write-behind.enabled).
+ * Логин кладёт токен в ограниченную очередь и журнал на диске, фоновый поток пишет очередь
+ * в базу пакетами JDBC, по пакету на транзакцию. Пока токен не записан, его проверка и отзыв
+ * идут по очереди в памяти ({@link #check}, {@link #revoke}, {@link #revokeAll}); при заполненной
+ * очереди или ошибке журнала токен пишется сразу, в потоке запроса.
+ *
+ * <p>Запись пакета и отзыв ещё не записанных токенов идут под одной блокировкой: отзыв либо
+ * помечает токен в очереди (он будет записан отозванным), либо ждёт коммита пакета, и тогда
+ * следующий за ним UPDATE в базе этот токен уже видит. Писатель берёт блокировку внутри транзакции,
+ * уже получив соединение, и отпускает после её завершения: порядок всегда "соединение, затем блокировка",
+ * поэтому ожидание блокировки не держит соединение, которого не хватает писателю.
+ *
+ * <p>Журнал переживает перезапуск: при старте оставшиеся в нём токены и отзывы записываются в базу
+ * раньше, чем веб-сервер начинает принимать запросы.
+ *
+ * <p>Метрики: {@code token.write-behind.queue.size} — токены, ещё не записанные в базу,
+ * {@code token.write-behind.flush} — время записи пакета, {@code token.write-behind.written} — записанные
+ * токены, {@code token.write-behind.fallback} — токены, записанные сразу из-за заполненной очереди или
+ * ошибки журнала, {@code token.write-behind.failures} — неудачные попытки записи пакета,
+ * {@code token.write-behind.journal.segments} — файлы журнала на диске.
+ */
+@Slf4j
+@Component
+public class TokenWriteBehind implements SmartLifecycle {
+
+    public enum Status {
+        // Токен ждёт записи и не отозван
+        PENDING,
+        // Токен ждёт записи и уже отозван
+        REVOKED,
+        // Токена в очереди нет — нужно спросить базу
+        UNKNOWN
+    }
+
+    // Токены удалённого за это время пользователя пропускаются, а не роняют весь пакет на внешнем ключе.
+    // Типы указаны явно: в списке SELECT PostgreSQL не выводит их из колонок INSERT
+    private static final String INSERT_SQL = """
+            INSERT INTO user_tokens (id, token_hash, user_id, token_type, revoked, created_at)
+            SELECT ?::uuid, ?::bytea, ?::uuid, ?::varchar, ?::boolean, ?::timestamp
+            WHERE EXISTS (SELECT 1 FROM users WHERE id = ?::uuid)
+            ON CONFLICT DO NOTHING
+            """;
+    private static final String REVOKE_SQL = "UPDATE user_tokens SET revoked = true WHERE token_hash = ?";
+
+    private final TokenWriteBehindProperties properties;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TokenRevocationIndex revocationIndex;
+    private final TokenJournal journal;
+
+    private final BlockingQueue<PendingToken> queue = new LinkedBlockingQueue<>();
+    private final Map<ByteBuffer, PendingToken> pending = new ConcurrentHashMap<>();
+    private final Semaphore capacity;
+    // ReentrantLock, а не монитор: под ней идёт запись в базу, и виртуальные потоки не должны закрепляться
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    private final Timer flushTimer;
+    private final Counter written;
+    private final Counter fallback;
+    private final Counter failures;
+
+    private volatile boolean running;
+    private Thread writer;
+
+    public TokenWriteBehind(TokenWriteBehindProperties properties,
+                            JdbcTemplate jdbcTemplate,
+                            PlatformTransactionManager transactionManager,
+                            TokenRevocationIndex revocationIndex,
+                            MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.revocationIndex = revocationIndex;
+        this.journal = new TokenJournal(properties.getJournalDir(), properties.getJournalSegmentRecords(),
+                properties.isJournalFsync());
+        this.capacity = new Semaphore(properties.getQueueCapacity());
+
+        this.flushTimer = Timer.builder("token.write-behind.flush")
+                .description("Время записи пакета токенов в базу")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        this.written = Counter.builder("token.write-behind.written")
+                .description("Токены, записанные фоновым писателем")
+                .register(meterRegistry);
+        this.fallback = Counter.builder("token.write-behind.fallback")
+                .description("Токены, записанные сразу в потоке запроса")
+                .register(meterRegistry);
+        this.failures = Counter.builder("token.write-behind.failures")
+                .description("Неудачные попытки записи пакета токенов")
+                .register(meterRegistry);
+        Gauge.builder("token.write-behind.queue.size", pending, Map::size)
+                .description("Токены, ещё не записанные в базу")
+                .register(meterRegistry);
+        Gauge.builder("token.write-behind.journal.segments", journal, TokenJournal::segmentCount)
+                .description("Файлы журнала токенов на диске")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * Ставит новый токен в очередь на запись. Возвращается после записи в журнал;
+     * если очередь заполнена или журнал недоступен, токен записывается в базу сразу.
+     */
+    public void enqueue(byte[] tokenHash, UUID userId, TokenType tokenType, LocalDateTime createdAt) {
+        PendingToken token = new PendingToken(UUID.randomUUID(), tokenHash, userId, tokenType, createdAt);
+        if (capacity.tryAcquire()) {
+            try {
+                token.segment = journal.appendToken(token.id, tokenHash, userId, tokenType, createdAt);
+                pending.put(ByteBuffer.wrap(tokenHash), token);
+                queue.add(token);
+                return;
+            } catch (IOException e) {
+                capacity.release();
+                log.warn("Не удалось записать токен в журнал, токен сохраняется сразу", e);
+            }
+        }
+        fallback.increment();
+        transactionTemplate.executeWithoutResult(status -> insert(List.of(token)));
+    }
+
+    /**
+     * @param tokenHash SHA-256 токена
+     * @return состояние токена в очереди или {@link Status#UNKNOWN}, если его там нет
+     */
+    public Status check(byte[] tokenHash) {
+        PendingToken token = pending.get(ByteBuffer.wrap(tokenHash));
+        if (token == null) {
+            return Status.UNKNOWN;
+        }
+        return token.revoked ? Status.REVOKED : Status.PENDING;
+    }
+
+    /**
+     * Отзывает токен, если он ещё ждёт записи. Вызывается до UPDATE в базе.
+     *
+     * @return true, если токен был в очереди и не был отозван
+     */
+    public boolean revoke(byte[] tokenHash) {
+        if (!isEnabled()) {
+            return false;
+        }
+        writeLock.lock();
+        try {
+            PendingToken token = pending.get(ByteBuffer.wrap(tokenHash));
+            if (token == null || token.revoked) {
+                return false;
+            }
+            markRevoked(token);
+            return true;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Отзывает ещё не записанные токены пользователя заданного типа. Вызывается до UPDATE в базе.
+     *
+     * @return хэши отозванных токенов
+     */
+    public List<byte[]> revokeAll(UUID userId, TokenType tokenType) {
+        if (!isEnabled()) {
+            return List.of();
+        }
+        List<byte[]> revoked = new ArrayList<>();
+        writeLock.lock();
+        try {
+            for (PendingToken token : pending.values()) {
+                if (!token.revoked && token.userId.equals(userId) && token.tokenType == tokenType) {
+                    markRevoked(token);
+                    revoked.add(token.tokenHash);
+                }
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        return revoked;
+    }
+
+    /**
+     * Заменяет ещё не записанный токен новым того же владельца и типа (ротация refresh токена).
+     *
+     * @return true, если старый токен был в очереди; иначе замену нужно делать в базе
+     */
+    public boolean replace(byte[] oldTokenHash, byte[] newTokenHash) {
+        if (!isEnabled()) {
+            return false;
+        }
+        PendingToken old;
+        writeLock.lock();
+        try {
+            old = pending.get(ByteBuffer.wrap(oldTokenHash));
+            if (old == null) {
+                return false;
+            }
+            markRevoked(old);
+        } finally {
+            writeLock.unlock();
+        }
+        enqueue(newTokenHash, old.userId, old.tokenType, LocalDateTime.now());
+        return true;
+    }
+
+    /**
+     * @return хэши отозванных, но ещё не записанных токенов (для перестроения индекса отозванных токенов)
+     */
+    public List<byte[]> pendingRevokedHashes() {
+        return pending.values().stream()
+                .filter(token -> token.revoked)
+                .map(token -> token.tokenHash)
+                .toList();
+    }
+
+    @Override
+    public void start() {
+        if (!isEnabled()) {
+            return;
+        }
+        replayJournal();
+        running = true;
+        writer = new CustomizableThreadFactory("token-write-behind-").newThread(this::runWriter);
+        writer.start();
+    }
+
+    /**
+     * Дописывает очередь в базу и останавливает писателя. Веб-сервер к этому моменту уже остановлен
+     * (фаза {@link #getPhase()} ниже, чем у него), поэтому новых токенов не будет.
+     */
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        journal.close();
+        if (!pending.isEmpty()) {
+            log.warn("{} токенов не записаны в базу и будут записаны из журнала при следующем запуске", pending.size());
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Старт раньше веб-сервера: журнал прошлого запуска записывается до первых запросов
+    @Override
+    public int getPhase() {
+        return 0;
+    }
+
+    private void runWriter() {
+        List<PendingToken> batch = new ArrayList<>(properties.getBatchSize());
+        long pollNanos = properties.getFlushInterval().toNanos();
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingToken first = queue.poll(pollNanos, TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, properties.getBatchSize() - 1);
+                while (!flush(batch) && running) {
+                    Thread.sleep(properties.getRetryDelay().toMillis());
+                }
+                batch.clear();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return true, если пакет записан; при ошибке пакет остаётся в очереди и в журнале
+     */
+    private boolean flush(List<PendingToken> batch) {
+        try {
+            flushTimer.record(() -> transactionTemplate.executeWithoutResult(status -> {
+                lockUntilCompletion(batch);
+                insert(batch);
+            }));
+        } catch (DataAccessException | TransactionException e) {
+            failures.increment();
+            log.warn("Не удалось записать {} токенов в базу, повтор через {}", batch.size(), properties.getRetryDelay(), e);
+            return false;
+        }
+        capacity.release(batch.size());
+        written.increment(batch.size());
+        return true;
+    }
+
+    /**
+     * Берёт writeLock в текущей транзакции и держит его до её завершения. Токены пакета убираются
+     * из очереди после коммита, ещё под блокировкой: отзыв после этого уже идёт UPDATE по базе.
+     */
+    private void lockUntilCompletion(List<PendingToken> batch) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                Map<Long, Integer> bySegment = new HashMap<>();
+                for (PendingToken token : batch) {
+                    pending.remove(ByteBuffer.wrap(token.tokenHash));
+                    bySegment.merge(token.segment, 1, Integer::sum);
+                }
+                bySegment.forEach(journal::release);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                writeLock.unlock();
+            }
+        });
+        writeLock.lock();
+    }
+
+    private void insert(List<PendingToken> tokens) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, tokens, tokens.size(), (statement, token) -> {
+            statement.setObject(1, token.id);
+            statement.setBytes(2, token.tokenHash);
+            statement.setObject(3, token.userId);
+            statement.setString(4, token.tokenType.name());
+            statement.setBoolean(5, token.revoked);
+            statement.setTimestamp(6, Timestamp.valueOf(token.createdAt));
+            statement.setObject(7, token.userId);
+        });
+    }
+
+    // Вызывается под writeLock
+    private void markRevoked(PendingToken token) {
+        try {
+            journal.appendRevoke(token.tokenHash);
+        } catch (IOException e) {
+            // Без записи отзыва в журнале после падения токен восстановился бы действующим
+            throw new UncheckedIOException("Не удалось записать отзыв токена в журнал", e);
+        }
+        token.revoked = true;
+    }
+
+    private void replayJournal() {
+        List<TokenJournal.Entry> entries;
+        try {
+            entries = journal.replay();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось прочитать журнал токенов " + properties.getJournalDir(), e);
+        }
+        if (entries.isEmpty()) {
+            return;
+        }
+
+        Map<ByteBuffer, PendingToken> tokens = new LinkedHashMap<>();
+        List<byte[]> revokes = new ArrayList<>();
+        for (TokenJournal.Entry entry : entries) {
+            if (entry.kind() == TokenJournal.TOKEN) {
+                tokens.put(ByteBuffer.wrap(entry.tokenHash()), new PendingToken(
+                        entry.id(), entry.tokenHash(), entry.userId(), entry.tokenType(), entry.createdAt()));
+                continue;
+            }
+            PendingToken token = tokens.get(ByteBuffer.wrap(entry.tokenHash()));
+            if (token != null) {
+                token.revoked = true;
+            } else {
+                revokes.add(entry.tokenHash());
+            }
+        }
+
+        List<PendingToken> replayed = new ArrayList<>(tokens.values());
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int from = 0; from < replayed.size(); from += properties.getBatchSize()) {
+                insert(replayed.subList(from, Math.min(from + properties.getBatchSize(), replayed.size())));
+            }
+            // Отзывы токенов, записанных в базу до падения
+            if (!revokes.isEmpty()) {
+                jdbcTemplate.batchUpdate(REVOKE_SQL, revokes, properties.getBatchSize(),
+                        (statement, tokenHash) -> statement.setBytes(1, tokenHash));
+            }
+        });
+        replayed.stream().filter(token -> token.revoked).forEach(token -> revocationIndex.addAfterCommit(token.tokenHash));
+        revokes.forEach(revocationIndex::addAfterCommit);
+
+        try {
+            journal.discardReplayed();
+        } catch (IOException e) {
+            // Повторное применение безопасно: INSERT ... ON CONFLICT DO NOTHING и идемпотентный UPDATE
+            log.warn("Не удалось удалить применённые сегменты журнала токенов", e);
+        }
+        log.info("Из журнала токенов восстановлено {} токенов и {} отзывов", replayed.size(), revokes.size());
+    }
+
+    private static final class PendingToken {
+        final UUID id;
+        final byte[] tokenHash;
+        final UUID userId;
+        final TokenType tokenType;
+        final LocalDateTime createdAt;
+        // Меняется под writeLock, читается без блокировки в check()
+        volatile boolean revoked;
+        long segment;
+
+        PendingToken(UUID id, byte[] tokenHash, UUID userId, TokenType tokenType, LocalDateTime createdAt) {
+            this.id = id;
+            this.tokenHash = tokenHash;
+            this.userId = userId;
+            this.tokenType = tokenType;
+            this.createdAt = createdAt;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package petproekt.task_management_system.security;
+
+import petproekt.task_management_system.enm.TokenType;
+
+import java.time.Instant;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Неизменяемый набор claims токена, подпись которого уже проверена.
+ *
+ * @param subject   имя пользователя (claim {@code sub})
+ * @param type      тип токена (claim {@code type})
+ * @param issuedAt  время выпуска (claim {@code iat})
+ * @param expiresAt время истечения (claim {@code exp})
+ * @param userId    UUID пользователя (claim {@code uid}); null, если токен выпущен без него
+ * @param roles     названия ролей (claim {@code roles}); пустое множество, если claim отсутствует
+ * @param jti       идентификатор токена (claim {@code jti}); null, если токен выпущен без него
+ */
+public record VerifiedToken(
+        String subject,
+        TokenType type,
+        Instant issuedAt,
+        Instant expiresAt,
+        UUID userId,
+        Set<String> roles,
+        String jti
+) {
+
+    /**
+     * Самодостаточный токен несёт id и роли, и principal строится без запроса в базу.
+     */
+    public boolean isSelfContained() {
+        return userId != null;
+    }
+
+    /**
+     * Сколько секунд осталось до истечения токена (не меньше нуля).
+     */
+    public long remainingSeconds() {
+        long diff = expiresAt.toEpochMilli() - System.currentTimeMillis();
+        return Math.max(diff / 1000, 0);
+    }
+}
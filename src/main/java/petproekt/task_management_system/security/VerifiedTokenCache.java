@@ -0,0 +1,144 @@
+package petproekt.task_management_system.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+import petproekt.task_management_system.config.JwtProperties;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ограниченный по размеру кэш проверенных access токенов: SHA-256 токена → готовый Authentication.
+ * Запись живёт до exp токена и удаляется раньше при logout или отзыве через UserTokenService.
+ * Счётчики попаданий/промахов публикуются в Micrometer как метрики cache.* с именем {@value #CACHE_NAME}.
+ */
+@Component
+public class VerifiedTokenCache implements MeterBinder {
+
+    private static final String CACHE_NAME = "jwt.verified-tokens";
+
+    // null, если кэш выключен в настройках
+    private final Cache<ByteBuffer, CachedAuthentication> cache;
+    private final AccessTokenDenyList denyList;
+
+    public VerifiedTokenCache(JwtProperties jwtProperties, AccessTokenDenyList denyList) {
+        this.denyList = denyList;
+        JwtProperties.VerifiedCache properties = jwtProperties.getVerifiedCache();
+        this.cache = properties.isEnabled()
+                ? Caffeine.newBuilder()
+                        .maximumSize(properties.getMaxSize())
+                        .expireAfter(new UntilTokenExpiry())
+                        .recordStats()
+                        .build()
+                : null;
+    }
+
+    public boolean isEnabled() {
+        return cache != null;
+    }
+
+    /**
+     * @param token JWT токен
+     * @return ключ кэша для токена или null, если кэш выключен
+     */
+    public ByteBuffer keyFor(String token) {
+        return cache == null ? null : ByteBuffer.wrap(TokenHashes.sha256(token));
+    }
+
+    /**
+     * @return закэшированный Authentication или null при промахе
+     */
+    public Authentication get(ByteBuffer key) {
+        if (cache == null || key == null) {
+            return null;
+        }
+        CachedAuthentication cached = cache.getIfPresent(key);
+        if (cached == null) {
+            return null;
+        }
+        // Отзыв по jti мог прийти с другого экземпляра, где этот токен не закэширован
+        if (denyList.isDenied(cached.jti())) {
+            cache.invalidate(key);
+            return null;
+        }
+        return cached.authentication();
+    }
+
+    public void put(ByteBuffer key, Authentication authentication, VerifiedToken token) {
+        if (cache != null && key != null) {
+            cache.put(key, new CachedAuthentication(authentication, token.expiresAt().toEpochMilli(), token.jti()));
+        }
+    }
+
+    /**
+     * Удаляет из кэша конкретный токен (например, при его отзыве).
+     */
+    public void evict(String token) {
+        if (cache != null) {
+            cache.invalidate(keyFor(token));
+        }
+    }
+
+    /**
+     * Удаляет из кэша все токены пользователя (logout, массовый отзыв).
+     */
+    public void evictUser(String username) {
+        if (cache != null) {
+            cache.asMap().values().removeIf(cached -> username.equals(cached.authentication().getName()));
+        }
+    }
+
+    /**
+     * Удаляет из кэша все токены пользователя по его id.
+     */
+    public void evictUser(UUID userId) {
+        if (cache != null) {
+            cache.asMap().values().removeIf(cached ->
+                    cached.authentication().getPrincipal() instanceof AuthenticatedUser user && userId.equals(user.id()));
+        }
+    }
+
+    public CacheStats stats() {
+        return cache == null ? CacheStats.empty() : cache.stats();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (cache != null) {
+            CaffeineCacheMetrics.monitor(registry, cache, CACHE_NAME);
+        }
+    }
+
+    private record CachedAuthentication(Authentication authentication, long expiresAtMillis, String jti) {
+    }
+
+    /**
+     * Запись истекает ровно в момент exp токена.
+     */
+    private static class UntilTokenExpiry implements Expiry<ByteBuffer, CachedAuthentication> {
+
+        @Override
+        public long expireAfterCreate(ByteBuffer key, CachedAuthentication value, long currentTime) {
+            long remainingMillis = value.expiresAtMillis() - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(remainingMillis, 0));
+        }
+
+        @Override
+        public long expireAfterUpdate(ByteBuffer key, CachedAuthentication value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(ByteBuffer key, CachedAuthentication value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
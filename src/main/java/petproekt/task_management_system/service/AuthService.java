@@ -4,9 +4,11 @@ import petproekt.task_management_system.dto.AuthRequest;
 import petproekt.task_management_system.dto.AuthResponse;
 import petproekt.task_management_system.dto.RegisterRequest;
 
+import java.util.concurrent.CompletableFuture;
+
 public interface AuthService {
-    String register(RegisterRequest request);
-    AuthResponse login(AuthRequest request);
+    CompletableFuture<String> register(RegisterRequest request);
+    CompletableFuture<AuthResponse> login(AuthRequest request);
     void logout(String token);
 
     AuthResponse refreshToken(String refreshToken);
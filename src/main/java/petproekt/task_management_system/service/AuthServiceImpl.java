@@ -1,116 +1,216 @@
 package petproekt.task_management_system.service;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import petproekt.task_management_system.dao.UserRepository;
-import petproekt.task_management_system.dao.UserTokenRepository;
 import petproekt.task_management_system.dto.AuthRequest;
 import petproekt.task_management_system.dto.AuthResponse;
 import petproekt.task_management_system.dto.RegisterRequest;
 import petproekt.task_management_system.entity.UserApp;
-import petproekt.task_management_system.entity.UserToken;
 import petproekt.task_management_system.enm.TokenType;
 import petproekt.task_management_system.exception.UserAlreadyExistsException;
 import petproekt.task_management_system.exception.UserNotFoundException;
+import petproekt.task_management_system.security.AppUserDetails;
+import petproekt.task_management_system.security.AuthenticatedUser;
 import petproekt.task_management_system.security.JwtUtil;
-
-import java.time.LocalDateTime;
-import java.util.List;
+import petproekt.task_management_system.security.PasswordHashingExecutor;
+import petproekt.task_management_system.security.TokenHashes;
+import petproekt.task_management_system.security.TokenRevocationIndex;
+import petproekt.task_management_system.security.TokenVerification;
+import petproekt.task_management_system.security.VerifiedToken;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 @Service
 @RequiredArgsConstructor
 public class AuthServiceImpl implements AuthService {
 
     private final UserRepository userRepository;
-    private final UserTokenRepository userTokenRepository;
-    private final PasswordEncoder passwordEncoder;
-    private final AuthenticationManager authenticationManager;
+    private final UserTokenService userTokenService;
+    private final CustomUserDetailsService userDetailsService;
+    private final PasswordHashingExecutor passwordHashingExecutor;
+    private final TransactionTemplate transactionTemplate;
     private final JwtUtil jwtUtil;
+    private final TokenRevocationIndex revocationIndex;
+    private final MeterRegistry meterRegistry;
+    // Пул Spring Boot для блокирующей работы после BCrypt (бин выбирается по имени параметра);
+    // при spring.threads.virtual.enabled — виртуальные потоки
+    private final Executor applicationTaskExecutor;
 
     /**
-     * Регистрация нового пользователя
+     * Регистрация нового пользователя. Поток запроса не ходит в базу: проверка имени и запись
+     * идут в applicationTaskExecutor, а пароль хэшируется между ними в пуле BCrypt, чтобы транзакция
+     * не занимала его поток. Занятое имя отсекается до BCrypt; гонку двух регистраций
+     * с одним именем ловит уникальный индекс при сохранении.
      */
     @Override
-    @Transactional
-    public String register(RegisterRequest request) {
-        if (userRepository.existsByUsername(request.getUsername())) {
-            throw new UserAlreadyExistsException("Пользователь с таким именем уже существует");
-        }
-
-        UserApp user = UserApp.builder()
-                .username(request.getUsername())
-                .password(passwordEncoder.encode(request.getPassword()))
-                .build();
-
-        userRepository.save(user);
-        return "Пользователь успешно зарегистрирован";
+    public CompletableFuture<String> register(RegisterRequest request) {
+        return CompletableFuture.supplyAsync(() -> {
+                    if (userRepository.existsByUsername(request.getUsername())) {
+                        throw new UserAlreadyExistsException("Пользователь с таким именем уже существует");
+                    }
+                    return request.getPassword();
+                }, applicationTaskExecutor)
+                .thenCompose(passwordHashingExecutor::encode)
+                .thenApplyAsync(encodedPassword -> {
+                    UserApp user = UserApp.builder()
+                            .username(request.getUsername())
+                            .password(encodedPassword)
+                            .build();
+                    try {
+                        transactionTemplate.executeWithoutResult(status -> userRepository.save(user));
+                    } catch (DataIntegrityViolationException e) {
+                        // Параллельная регистрация с тем же именем успела раньше
+                        throw new UserAlreadyExistsException("Пользователь с таким именем уже существует");
+                    }
+                    return "Пользователь успешно зарегистрирован";
+                }, applicationTaskExecutor);
     }
 
     /**
-     * Аутентификация пользователя и генерация токенов
+     * Аутентификация пользователя и генерация токенов.
+     * Пользователь загружается один раз (обычно из кэша UserDetails), проверка пароля
+     * идёт в пуле BCrypt. Для несуществующего пользователя хэшируется фиктивный пароль,
+     * чтобы время ответа не выдавало, есть ли такой логин. Если хэш посчитан с меньшей
+     * стоимостью BCrypt, чем выбрана сейчас, он прозрачно пересчитывается и сохраняется.
+     * Транзакция с выпуском токенов идёт в applicationTaskExecutor: поток BCrypt освобождается
+     * сразу после проверки пароля и не ждёт соединения с базой.
+     *
+     * @return future с токенами; завершается {@link BadCredentialsException} при неверных данных
+     * и {@link RejectedExecutionException}, если пул BCrypt перегружен
      */
     @Override
-    @Transactional
-    public AuthResponse login(AuthRequest request) {
+    public CompletableFuture<AuthResponse> login(AuthRequest request) {
+        long start = System.nanoTime();
+        return authenticate(request).whenComplete((response, error) -> Timer.builder("auth.login")
+                .description("Логин целиком: загрузка пользователя, BCrypt и выпуск токенов")
+                .tag("outcome", loginOutcome(error))
+                .register(meterRegistry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+    }
+
+    private CompletableFuture<AuthResponse> authenticate(AuthRequest request) {
+        if (request.getUsername() == null || request.getPassword() == null) {
+            return CompletableFuture.failedFuture(new BadCredentialsException("Неверные имя пользователя или пароль"));
+        }
+
+        AppUserDetails userDetails;
         try {
-            authenticationManager.authenticate(
-                    new UsernamePasswordAuthenticationToken(request.getUsername(), request.getPassword())
-            );
-        } catch (Exception e) {
-            throw new IllegalArgumentException("Неверные имя пользователя или пароль");
+            userDetails = userDetailsService.loadUserByUsername(request.getUsername());
+        } catch (UsernameNotFoundException e) {
+            userDetails = null;
         }
+        AppUserDetails user = userDetails;
+
+        return passwordHashingExecutor.verify(request.getPassword(), user == null ? null : user.getPassword())
+                .thenApplyAsync(check -> {
+                    if (!check.matched()) {
+                        throw new BadCredentialsException("Неверные имя пользователя или пароль");
+                    }
+                    AuthResponse response = transactionTemplate.execute(status -> {
+                        if (check.upgradedHash() != null) {
+                            userRepository.updatePassword(user.getAuthenticatedUser().id(), check.upgradedHash());
+                        }
+                        return issueTokens(user.getAuthenticatedUser());
+                    });
+                    if (check.upgradedHash() != null) {
+                        userDetailsService.evictUser(user.getUsername());
+                    }
+                    return response;
+                }, applicationTaskExecutor);
+    }
 
-        UserApp user = userRepository.findByUsername(request.getUsername())
-                .orElseThrow(() -> new UserNotFoundException("Пользователь не найден"));
+    private static String loginOutcome(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause == null) {
+            return "success";
+        }
+        if (cause instanceof BadCredentialsException) {
+            return "bad_credentials";
+        }
+        if (cause instanceof RejectedExecutionException) {
+            return "rejected";
+        }
+        return "error";
+    }
 
-        // Отзываем все предыдущие refresh токены
-        List<UserToken> oldTokens = userTokenRepository.findAllByUserAndTokenTypeAndRevokedFalse(user, TokenType.REFRESH);
-        oldTokens.forEach(t -> t.setRevoked(true));
-        userTokenRepository.saveAll(oldTokens);
-
-        // Генерация новых токенов
-        String accessToken = jwtUtil.generateToken(user.getUsername(), TokenType.ACCESS);
-        String refreshToken = jwtUtil.generateToken(user.getUsername(), TokenType.REFRESH);
-
-        // Сохраняем новые токены в базе
-        userTokenRepository.save(UserToken.builder()
-                .token(accessToken)
-                .user(user)
-                .tokenType(TokenType.ACCESS)
-                .revoked(false)
-                .createdAt(LocalDateTime.now())
-                .build());
-
-        userTokenRepository.save(UserToken.builder()
-                .token(refreshToken)
-                .user(user)
-                .tokenType(TokenType.REFRESH)
-                .revoked(false)
-                .createdAt(LocalDateTime.now())
-                .build());
+    /**
+     * Отзывает прежние refresh токены пользователя и выдаёт новую пару.
+     */
+    private AuthResponse issueTokens(AuthenticatedUser user) {
+        userTokenService.revokeAllTokensByUserAndType(user.id(), TokenType.REFRESH);
+
+        String accessToken = jwtUtil.generateAccessToken(user);
+        String refreshToken = jwtUtil.generateToken(user.username(), TokenType.REFRESH);
+
+        // Для вставки нужен только внешний ключ, поэтому ссылка без SELECT
+        UserApp owner = userRepository.getReferenceById(user.id());
+
+        // Сохраняем новые токены (сразу или через очередь отложенной записи);
+        // access токен — только если не включён режим deny-list по jti
+        if (jwtUtil.isPersistAccessTokens()) {
+            userTokenService.storeNewToken(accessToken, owner, TokenType.ACCESS);
+        }
+        userTokenService.storeNewToken(refreshToken, owner, TokenType.REFRESH);
 
         return new AuthResponse(accessToken, refreshToken);
     }
 
     /**
-     * Выход из системы: отзыв refresh токена
+     * Выход из системы по refresh или access токену.
+     * Refresh токен отзывается сам. Access токен попадает в deny-list по jti (или отзывается в базе,
+     * если access токены сохраняются), а вместе с ним отзываются refresh токены его владельца:
+     * иначе без хранения access токенов их нельзя было бы отозвать до exp.
      */
     @Override
     @Transactional
     public void logout(String token) {
-        UserToken userToken = userTokenRepository.findByToken(token)
-                .orElseThrow(() -> new IllegalArgumentException("Неверный токен для выхода из системы"));
+        TokenVerification verification = jwtUtil.verify(token, TokenType.REFRESH);
+        if (verification.status() == TokenVerification.Status.WRONG_TYPE) {
+            throw new IllegalArgumentException("Для выхода необходимо использовать refresh или access токен");
+        }
+        // Просроченный токен тоже можно отозвать: подпись у него проверена
+        if (verification.token() == null) {
+            logoutByAccessToken(token);
+            return;
+        }
 
-        if (userToken.getTokenType() != TokenType.REFRESH) {
-            throw new IllegalArgumentException("Для выхода необходимо использовать refresh токен");
+        // Повторный выход — не ошибка, в базу при этом не ходим
+        if (revocationIndex.check(TokenHashes.sha256(token)) == TokenRevocationIndex.Status.REVOKED) {
+            return;
+        }
+        if (!userTokenService.revokeToken(token, verification.token().subject())) {
+            throw new IllegalArgumentException("Неверный токен для выхода из системы");
         }
+    }
 
-        userToken.setRevoked(true);
-        userTokenRepository.save(userToken);
+    private void logoutByAccessToken(String token) {
+        TokenVerification verification = jwtUtil.verify(token, TokenType.ACCESS);
+        if (verification.token() == null) {
+            throw new IllegalArgumentException("Неверный токен для выхода из системы");
+        }
+        VerifiedToken access = verification.token();
+        // Истёкший access токен уже недействителен, отзывать нужно только refresh токены
+        userTokenService.revokeToken(token, access.subject());
+
+        UUID userId = access.isSelfContained()
+                ? access.userId()
+                : userRepository.findByUsername(access.subject()).map(UserApp::getId).orElse(null);
+        if (userId != null) {
+            userTokenService.revokeAllTokensByUserAndType(userId, TokenType.REFRESH);
+        }
     }
 
     /**
@@ -119,37 +219,27 @@ public class AuthServiceImpl implements AuthService {
     @Override
     @Transactional
     public AuthResponse refreshToken(String refreshToken) {
-        if (!jwtUtil.validateToken(refreshToken, TokenType.REFRESH)) {
+        TokenVerification verification = jwtUtil.verify(refreshToken, TokenType.REFRESH);
+        if (!verification.isValid()) {
             throw new IllegalArgumentException("Неверный refresh токен");
         }
 
-        String username = jwtUtil.getUsernameFromToken(refreshToken, TokenType.REFRESH);
+        String username = verification.token().subject();
         UserApp user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new UserNotFoundException("Пользователь не найден"));
 
-        UserToken storedToken = userTokenRepository.findByToken(refreshToken)
-                .orElseThrow(() -> new IllegalArgumentException("Токен не найден"));
-
-        if (storedToken.isRevoked()) {
-            throw new IllegalArgumentException("Refresh токен уже отозван");
-        }
-
-        // Проверка истечения срока действия refresh токена
+        // Отзыв проверяется по индексу, в базу запрос уходит только пока индекс не построен
         long expirationMinutes = jwtUtil.getRefreshTokenExpiration() / 60000;
-        if (storedToken.getCreatedAt().plusMinutes(expirationMinutes).isBefore(LocalDateTime.now())) {
-            throw new IllegalArgumentException("Refresh токен истёк");
+        if (!userTokenService.isTokenValid(refreshToken, expirationMinutes)) {
+            throw new IllegalArgumentException("Refresh токен отозван или истёк");
         }
 
         // Генерация и сохранение нового access токена
-        String newAccessToken = jwtUtil.generateToken(username, TokenType.ACCESS);
-
-        userTokenRepository.save(UserToken.builder()
-                .token(newAccessToken)
-                .user(user)
-                .tokenType(TokenType.ACCESS)
-                .revoked(false)
-                .createdAt(LocalDateTime.now())
-                .build());
+        String newAccessToken = jwtUtil.generateAccessToken(AuthenticatedUser.of(user));
+
+        if (jwtUtil.isPersistAccessTokens()) {
+            userTokenService.storeNewToken(newAccessToken, user, TokenType.ACCESS);
+        }
 
         return new AuthResponse(newAccessToken, refreshToken);
     }
@@ -1,39 +1,112 @@
 package petproekt.task_management_system.service;
 
-import lombok.RequiredArgsConstructor;
-import org.springframework.security.core.userdetails.UserDetails;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import petproekt.task_management_system.config.UserDetailsCacheProperties;
 import petproekt.task_management_system.dao.UserRepository;
+import petproekt.task_management_system.datasource.ReadWriteRoutingDataSource;
 import petproekt.task_management_system.entity.UserApp;
 import petproekt.task_management_system.exception.UserNotFoundException;
+import petproekt.task_management_system.security.AppUserDetails;
+import petproekt.task_management_system.security.AuthenticatedUser;
 
-import java.util.Collections;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Загрузка пользователей для Spring Security с кэшем в памяти.
+ * Метрика {@code auth.user.load}: время loadUserByUsername с тегом source (cache или database).
+ */
 @Service
-@RequiredArgsConstructor
 public class CustomUserDetailsService implements UserDetailsService {
 
+    private static final String CACHE_NAME = "user-details";
+
     private final UserRepository userRepository;
 
+    // null, если кэш выключен в настройках
+    private final Cache<String, CachedUser> userDetailsCache;
+
+    private final Timer cacheLoadTimer;
+    private final Timer databaseLoadTimer;
+
+    public CustomUserDetailsService(UserRepository userRepository,
+                                    UserDetailsCacheProperties cacheProperties,
+                                    MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        this.userDetailsCache = cacheProperties.isEnabled()
+                ? Caffeine.newBuilder()
+                        .maximumSize(cacheProperties.getMaxSize())
+                        .expireAfterWrite(cacheProperties.getTtl())
+                        .recordStats()
+                        .build()
+                : null;
+        if (userDetailsCache != null) {
+            CaffeineCacheMetrics.monitor(meterRegistry, userDetailsCache, CACHE_NAME);
+        }
+        this.cacheLoadTimer = loadTimer(meterRegistry, "cache");
+        this.databaseLoadTimer = loadTimer(meterRegistry, "database");
+    }
+
     /**
      * Загружает пользователя по username для Spring Security.
+     * Повторные вызовы в пределах TTL обслуживаются из кэша без запроса в базу.
      * @param username имя пользователя (логин)
-     * @return объект UserDetails с данными для аутентификации
+     * @return объект UserDetails с данными для аутентификации, id и ролями пользователя
      * @throws UsernameNotFoundException если пользователь не найден
      */
     @Override
-    public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        UserApp userApp = userRepository.findByUsername(username)
-                .orElseThrow(() -> new UsernameNotFoundException("Пользователь '" + username + "' не найден"));
-        // Здесь можно вернуть роли/привилегии, сейчас пустой список авторизаций
-        return new org.springframework.security.core.userdetails.User(
-                userApp.getUsername(),
-                userApp.getPassword(),
-                Collections.emptyList()
-        );
+    public AppUserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+        long start = System.nanoTime();
+        CachedUser cachedUser = userDetailsCache == null ? null : userDetailsCache.getIfPresent(username);
+        Timer timer = cacheLoadTimer;
+        if (cachedUser == null) {
+            timer = databaseLoadTimer;
+            // По этим данным принимается решение об аутентификации, поэтому только основная база:
+            // на реплике может не быть нового пользователя или ещё действовать старый пароль
+            UserApp userApp = ReadWriteRoutingDataSource.onPrimary(() -> userRepository.findByUsername(username))
+                    .orElseThrow(() -> new UsernameNotFoundException("Пользователь '" + username + "' не найден"));
+            cachedUser = new CachedUser(AuthenticatedUser.of(userApp), userApp.getPassword());
+            if (userDetailsCache != null) {
+                userDetailsCache.put(username, cachedUser);
+            }
+        }
+        timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return cachedUser.toUserDetails();
+    }
+
+    /**
+     * Сбрасывает кэш пользователя. Вызывать при смене пароля или ролей.
+     *
+     * @param username имя пользователя
+     */
+    public void evictUser(String username) {
+        if (userDetailsCache != null) {
+            userDetailsCache.invalidate(username);
+        }
+    }
+
+    /**
+     * Полностью очищает кэш пользователей.
+     */
+    public void evictAll() {
+        if (userDetailsCache != null) {
+            userDetailsCache.invalidateAll();
+        }
+    }
+
+    private static Timer loadTimer(MeterRegistry meterRegistry, String source) {
+        return Timer.builder("auth.user.load")
+                .description("Загрузка пользователя по username")
+                .tag("source", source)
+                .register(meterRegistry);
     }
 
 
@@ -51,12 +124,25 @@ public class CustomUserDetailsService implements UserDetailsService {
 
     /**
      * Метод для поиска пользователя по ID.
+     * Читается с реплики; собственные недавние записи пользователя видны за счёт окна read-your-writes.
      * @param id UUID пользователя
      * @return найденный UserApp
      * @throws UserNotFoundException если пользователь не найден
      */
+    @Transactional(readOnly = true)
     public UserApp findById(UUID id) {
         return userRepository.findById(id)
                 .orElseThrow(() -> new UserNotFoundException("Пользователь с id " + id + " не найден"));
     }
+
+    /**
+     * Неизменяемый снимок пользователя в кэше. Наружу каждый раз отдаётся новый User:
+     * ProviderManager после логина вызывает eraseCredentials() и обнулил бы пароль у общего объекта.
+     */
+    private record CachedUser(AuthenticatedUser user, String password) {
+
+        AppUserDetails toUserDetails() {
+            return new AppUserDetails(user, password);
+        }
+    }
 }
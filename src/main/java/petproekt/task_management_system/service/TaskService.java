@@ -0,0 +1,345 @@
+package petproekt.task_management_system.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import petproekt.task_management_system.dao.TaskCounterRepository;
+import petproekt.task_management_system.dao.TaskRepository;
+import petproekt.task_management_system.dao.UserRepository;
+import petproekt.task_management_system.dto.CursorPage;
+import petproekt.task_management_system.dto.TaskBatchRequest;
+import petproekt.task_management_system.dto.TaskBatchResponse;
+import petproekt.task_management_system.dto.TaskBatchUpdate;
+import petproekt.task_management_system.dto.TaskCursor;
+import petproekt.task_management_system.dto.TaskDto;
+import petproekt.task_management_system.dto.TaskFilter;
+import petproekt.task_management_system.dto.TaskPatch;
+import petproekt.task_management_system.dto.TaskRequest;
+import petproekt.task_management_system.dto.TaskSearchResult;
+import petproekt.task_management_system.dto.TaskStats;
+import petproekt.task_management_system.enm.TaskField;
+import petproekt.task_management_system.entity.Task;
+import petproekt.task_management_system.entity.UserApp;
+import petproekt.task_management_system.exception.TaskNotFoundException;
+import petproekt.task_management_system.exception.TaskVersionConflictException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+@Service
+@RequiredArgsConstructor
+public class TaskService {
+
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int MAX_PAGE_SIZE = 1000;
+    public static final int MAX_BATCH_SIZE = 1000;
+    public static final int DEFAULT_SEARCH_PAGE_SIZE = 20;
+    public static final int MAX_SEARCH_PAGE_SIZE = 100;
+    public static final int MAX_SEARCH_QUERY_LENGTH = 200;
+
+    // Как часто сбрасывать буфер в сокет при потоковой выдаче
+    private static final int STREAM_FLUSH_EVERY = 500;
+
+    private final TaskRepository taskRepository;
+    private final TaskCounterRepository taskCounterRepository;
+    private final UserRepository userRepository;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Возвращает страницу задач пользователя (keyset-пагинация) с фильтрами и порядком из {@code filter}.
+     * Без фильтров, в порядке id и со всеми полями строки читаются сразу в {@link TaskDto},
+     * иначе в SELECT попадают только запрошенные колонки. При порядке по времени создания
+     * поле createdAt возвращается всегда: из него строится курсор.
+     *
+     * @param userId id пользователя
+     * @param filter фильтры и порядок
+     * @param cursor курсор из предыдущей страницы или null для первой страницы
+     * @param limit  размер страницы, ограничивается {@link #MAX_PAGE_SIZE}
+     * @param fields запрошенные поля задачи
+     * @return страница задач и курсор следующей страницы
+     * @throws IllegalArgumentException если курсор повреждён или выдан для другого порядка
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<?> findPage(UUID userId, TaskFilter filter, String cursor, int limit, Set<TaskField> fields) {
+        int pageSize = Math.min(Math.max(limit, 1), MAX_PAGE_SIZE);
+        // Берём на одну запись больше, чтобы понять, есть ли следующая страница
+        int fetchSize = pageSize + 1;
+        TaskCursor after = TaskCursor.decode(cursor, filter.sort());
+
+        if (filter.isDefault() && isAllFields(fields)) {
+            List<TaskDto> tasks = after == null
+                    ? taskRepository.findDtoPage(userId, Limit.of(fetchSize))
+                    : taskRepository.findDtoPageAfter(userId, after.id(), Limit.of(fetchSize));
+            return toPage(tasks, pageSize, task -> new TaskCursor(null, task.id()));
+        }
+
+        Set<TaskField> selected = fields;
+        if (filter.sort().byCreatedAt() && !fields.contains(TaskField.CREATED_AT)) {
+            selected = EnumSet.copyOf(fields);
+            selected.add(TaskField.CREATED_AT);
+        }
+        List<Map<String, Object>> rows = taskRepository.findFieldsPage(userId, filter, after, fetchSize, selected);
+        return toPage(rows, pageSize, row -> new TaskCursor(
+                filter.sort().byCreatedAt() ? (LocalDateTime) row.get(TaskField.CREATED_AT.attribute()) : null,
+                (UUID) row.get(TaskField.ID.attribute())));
+    }
+
+    /**
+     * Возвращает количество задач пользователя из task_counters, без подсчёта по таблице task.
+     * Счётчики ведут триггеры на таблице task.
+     *
+     * @param userId id пользователя
+     * @return всего, открытых и выполненных задач
+     */
+    @Transactional(readOnly = true)
+    public TaskStats getStats(UUID userId) {
+        return taskCounterRepository.findById(userId)
+                .map(counter -> new TaskStats(counter.getTotal(), counter.getTotal() - counter.getDone(), counter.getDone()))
+                .orElse(TaskStats.EMPTY);
+    }
+
+    /**
+     * Возвращает версию списка задач пользователя: она растёт при каждом создании, изменении
+     * и удалении его задач. Читается по первичному ключу task_counters, без запроса к task.
+     *
+     * @param userId id пользователя
+     * @return версия; 0, если у пользователя ещё не было задач
+     */
+    @Transactional(readOnly = true)
+    public long getVersion(UUID userId) {
+        return taskCounterRepository.findVersionByUserId(userId).orElse(0L);
+    }
+
+    /**
+     * Ищет задачи пользователя по тексту в title и description, самые релевантные первыми.
+     * Курсор страницы — количество уже выданных результатов.
+     *
+     * @param userId id пользователя
+     * @param query  строка поиска
+     * @param cursor курсор из предыдущей страницы или null для первой страницы
+     * @param limit  размер страницы, ограничивается {@link #MAX_SEARCH_PAGE_SIZE}
+     * @return страница результатов и курсор следующей страницы
+     * @throws IllegalArgumentException если запрос пустой, слишком длинный или курсор некорректен
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<TaskSearchResult> search(UUID userId, String query, String cursor, int limit) {
+        String text = query == null ? "" : query.strip();
+        if (text.isEmpty()) {
+            throw new IllegalArgumentException("Параметр q не должен быть пустым");
+        }
+        if (text.length() > MAX_SEARCH_QUERY_LENGTH) {
+            throw new IllegalArgumentException("Параметр q не может быть длиннее " + MAX_SEARCH_QUERY_LENGTH + " символов");
+        }
+        int offset;
+        try {
+            offset = cursor == null ? 0 : Integer.parseInt(cursor);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Некорректный курсор: " + cursor);
+        }
+        if (offset < 0) {
+            throw new IllegalArgumentException("Некорректный курсор: " + cursor);
+        }
+
+        int pageSize = Math.min(Math.max(limit, 1), MAX_SEARCH_PAGE_SIZE);
+        List<TaskSearchResult> results = taskRepository.search(userId, text, offset, pageSize + 1);
+        if (results.size() <= pageSize) {
+            return new CursorPage<>(results, null);
+        }
+        return new CursorPage<>(results.subList(0, pageSize), String.valueOf(offset + pageSize));
+    }
+
+    /**
+     * Пишет все задачи пользователя в формате NDJSON (один JSON-объект на строку).
+     * Строки читаются курсором JDBC сразу в DTO, поэтому память не растёт с количеством задач.
+     *
+     * @param userId id пользователя
+     * @param fields запрошенные поля задачи
+     * @param out    поток ответа
+     */
+    @Transactional(readOnly = true)
+    public void streamTasks(UUID userId, Set<TaskField> fields, OutputStream out) throws IOException {
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+        generator.setRootValueSeparator(new SerializedString("\n"));
+
+        try (Stream<?> tasks = isAllFields(fields)
+                ? taskRepository.streamDtoByUserId(userId)
+                : taskRepository.streamFields(userId, fields)) {
+            Iterator<?> iterator = tasks.iterator();
+            int written = 0;
+            while (iterator.hasNext()) {
+                writer.writeValue(generator, iterator.next());
+                if (++written % STREAM_FLUSH_EVERY == 0) {
+                    generator.flush();
+                }
+            }
+            if (written > 0) {
+                generator.writeRaw('\n');
+            }
+        }
+        generator.flush();
+    }
+
+    /**
+     * Применяет пакет созданий, изменений и удалений в одной транзакции.
+     * INSERT и UPDATE уходят в базу JDBC-батчами (hibernate.jdbc.batch_size),
+     * удаления выполняются одним DELETE ... WHERE id IN (...).
+     * Изменения и удаления касаются только задач пользователя; чужие и несуществующие id пропускаются.
+     *
+     * @param userId  id пользователя
+     * @param request пакет операций
+     * @return созданные задачи и количество изменённых и удалённых
+     * @throws IllegalArgumentException если пакет больше {@link #MAX_BATCH_SIZE} или содержит изменение без id
+     */
+    @Transactional
+    public TaskBatchResponse applyBatch(UUID userId, TaskBatchRequest request) {
+        List<TaskRequest> creates = request.create() == null ? List.of() : request.create();
+        List<TaskBatchUpdate> updates = request.update() == null ? List.of() : request.update();
+        List<UUID> deletes = request.delete() == null ? List.of() : request.delete();
+
+        if (creates.size() + updates.size() + deletes.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("Пакет не может содержать больше " + MAX_BATCH_SIZE + " операций");
+        }
+        if (updates.stream().anyMatch(update -> update.id() == null)) {
+            throw new IllegalArgumentException("У каждого изменения должен быть указан id");
+        }
+
+        UserApp owner = userRepository.getReferenceById(userId);
+        List<Task> created = creates.stream()
+                .map(create -> {
+                    Task task = new Task();
+                    task.setTitle(create.title());
+                    task.setDescription(create.description());
+                    task.setDone(Boolean.TRUE.equals(create.done()));
+                    task.setUserApp(owner);
+                    return task;
+                })
+                .toList();
+        taskRepository.saveAll(created);
+
+        int updated = 0;
+        if (!updates.isEmpty()) {
+            Map<UUID, Task> tasksById = taskRepository
+                    .findAllByIdInAndUserAppId(updates.stream().map(TaskBatchUpdate::id).toList(), userId)
+                    .stream()
+                    .collect(Collectors.toMap(Task::getId, Function.identity()));
+            for (TaskBatchUpdate update : updates) {
+                Task task = tasksById.get(update.id());
+                if (task == null) {
+                    continue;
+                }
+                if (update.title() != null) {
+                    task.setTitle(update.title());
+                }
+                if (update.description() != null) {
+                    task.setDescription(update.description());
+                }
+                if (update.done() != null) {
+                    task.setDone(update.done());
+                }
+                updated++;
+            }
+        }
+
+        // Перед DELETE Hibernate сбрасывает накопленные INSERT и UPDATE батчами
+        int deleted = deletes.isEmpty() ? 0 : taskRepository.deleteAllByIdInAndUserId(deletes, userId);
+
+        List<TaskDto> createdDtos = created.stream()
+                .map(task -> new TaskDto(task.getId(), task.getTitle(), task.getDescription(), task.isDone(), task.getCreatedAt(), task.getVersion()))
+                .toList();
+        return new TaskBatchResponse(createdDtos, updated, deleted);
+    }
+
+    /**
+     * Изменяет задачу пользователя одним UPDATE ... WHERE id = ? AND user_id = ?: без предварительного
+     * чтения задачи и владельца, в SET только переданные поля.
+     *
+     * @param userId id пользователя
+     * @param taskId id задачи
+     * @param patch  изменяемые поля и ожидаемая версия
+     * @return задача после изменения
+     * @throws IllegalArgumentException если в патче нет ни одного поля
+     * @throws TaskNotFoundException если задачи нет или она принадлежит другому пользователю
+     * @throws TaskVersionConflictException если задача уже изменена и версия не совпала
+     */
+    @Transactional
+    public TaskDto patch(UUID userId, UUID taskId, TaskPatch patch) {
+        if (patch.isEmpty()) {
+            throw new IllegalArgumentException("Не указано ни одного поля для изменения");
+        }
+        return taskRepository.updateOwned(userId, taskId, patch)
+                .orElseThrow(() -> missingOrConflict(userId, taskId, patch.version()));
+    }
+
+    /**
+     * Удаляет задачу пользователя одним DELETE ... WHERE id = ? AND user_id = ?.
+     *
+     * @param userId  id пользователя
+     * @param taskId  id задачи
+     * @param version ожидаемая версия или null — без проверки
+     * @throws TaskNotFoundException если задачи нет или она принадлежит другому пользователю
+     * @throws TaskVersionConflictException если задача уже изменена и версия не совпала
+     */
+    @Transactional
+    public void delete(UUID userId, UUID taskId, Long version) {
+        if (taskRepository.deleteOwned(userId, taskId, version) == 0) {
+            throw missingOrConflict(userId, taskId, version);
+        }
+    }
+
+    /**
+     * Отмечает все задачи пользователя выполненными одним UPDATE.
+     *
+     * @return количество изменённых задач
+     */
+    @Transactional
+    public int markAllDone(UUID userId) {
+        return taskRepository.markAllDone(userId);
+    }
+
+    /**
+     * Удаляет все выполненные задачи пользователя одним DELETE.
+     *
+     * @return количество удалённых задач
+     */
+    @Transactional
+    public int deleteAllDone(UUID userId) {
+        return taskRepository.deleteAllDone(userId);
+    }
+
+    // Второй запрос выполняется только когда изменение не прошло
+    private RuntimeException missingOrConflict(UUID userId, UUID taskId, Long expectedVersion) {
+        return taskRepository.findVersionByIdAndUserId(taskId, userId)
+                .<RuntimeException>map(current -> new TaskVersionConflictException(
+                        "Задача уже изменена: текущая версия " + current + ", в запросе " + expectedVersion))
+                .orElseGet(() -> new TaskNotFoundException("Задача не найдена"));
+    }
+
+    private static boolean isAllFields(Set<TaskField> fields) {
+        return fields.size() == TaskField.values().length;
+    }
+
+    private static <T> CursorPage<T> toPage(List<T> rows, int pageSize, Function<T, TaskCursor> cursorOf) {
+        if (rows.size() <= pageSize) {
+            return new CursorPage<>(rows, null);
+        }
+        List<T> page = rows.subList(0, pageSize);
+        return new CursorPage<>(page, cursorOf.apply(page.get(pageSize - 1)).encode());
+    }
+}
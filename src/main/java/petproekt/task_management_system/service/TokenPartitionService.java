@@ -0,0 +1,103 @@
+package petproekt.task_management_system.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+/**
+ * Управление дневными партициями user_tokens (user_tokens_pYYYYMMDD).
+ * Таблица секционируется по created_at, только если миграции запускались
+ * с контекстом partitioned-tokens; иначе методы ничего не делают.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TokenPartitionService {
+
+    private static final String PARTITION_PREFIX = "user_tokens_p";
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.BASIC_ISO_DATE;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private volatile Boolean partitioned;
+
+    /**
+     * @return true, если user_tokens — секционированная таблица
+     */
+    public boolean isPartitioned() {
+        if (partitioned == null) {
+            partitioned = Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                    "SELECT EXISTS (SELECT 1 FROM pg_partitioned_table WHERE partrelid = to_regclass('user_tokens'))",
+                    Boolean.class));
+        }
+        return partitioned;
+    }
+
+    /**
+     * Создаёт партиции на ближайшие дни, начиная с завтрашнего.
+     * Сегодняшняя партиция создаётся предыдущими запусками; если её нет,
+     * строки попадают в DEFAULT-партицию и удаляются обычной очисткой.
+     *
+     * @param daysAhead на сколько дней вперёд нужны партиции
+     */
+    public void createUpcomingPartitions(int daysAhead) {
+        if (!isPartitioned()) {
+            return;
+        }
+        LocalDate today = LocalDate.now();
+        for (int i = 1; i <= daysAhead; i++) {
+            LocalDate day = today.plusDays(i);
+            String name = PARTITION_PREFIX + day.format(PARTITION_SUFFIX);
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + name
+                    + " PARTITION OF user_tokens FOR VALUES FROM ('" + day + "') TO ('" + day.plusDays(1) + "')");
+        }
+    }
+
+    /**
+     * Удаляет партиции, все строки которых созданы раньше cutoff. DROP TABLE не пишет
+     * по строке в WAL и не оставляет мёртвых кортежей, в отличие от DELETE.
+     *
+     * @param cutoff граница: партиция удаляется, если её верхняя граница не позже cutoff
+     * @return количество удалённых партиций
+     */
+    public int dropPartitionsBefore(LocalDateTime cutoff) {
+        if (!isPartitioned()) {
+            return 0;
+        }
+        List<String> partitions = jdbcTemplate.queryForList(
+                "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid "
+                        + "WHERE i.inhparent = to_regclass('user_tokens')",
+                String.class);
+        int dropped = 0;
+        for (String name : partitions) {
+            LocalDate day = partitionDay(name);
+            if (day != null && !day.plusDays(1).atStartOfDay().isAfter(cutoff)) {
+                jdbcTemplate.execute("DROP TABLE IF EXISTS " + name);
+                dropped++;
+            }
+        }
+        if (dropped > 0) {
+            log.info("Удалено партиций user_tokens: {}", dropped);
+        }
+        return dropped;
+    }
+
+    // Дата партиции по имени; null для DEFAULT и прочих партиций
+    private static LocalDate partitionDay(String name) {
+        if (!name.startsWith(PARTITION_PREFIX)) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(name.substring(PARTITION_PREFIX.length()), PARTITION_SUFFIX);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
@@ -1,98 +1,250 @@
 package petproekt.task_management_system.service;
 
 import jakarta.transaction.Transactional;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import petproekt.task_management_system.config.TokenCleanupProperties;
 import petproekt.task_management_system.dao.UserTokenRepository;
+import petproekt.task_management_system.datasource.ReadWriteRoutingDataSource;
 import petproekt.task_management_system.enm.TokenType;
+import petproekt.task_management_system.entity.UserApp;
 import petproekt.task_management_system.entity.UserToken;
+import petproekt.task_management_system.security.AccessTokenDenyList;
+import petproekt.task_management_system.security.JwtUtil;
+import petproekt.task_management_system.security.TokenHashes;
+import petproekt.task_management_system.security.TokenRevocationIndex;
+import petproekt.task_management_system.security.TokenVerification;
+import petproekt.task_management_system.security.TokenWriteBehind;
+import petproekt.task_management_system.security.VerifiedTokenCache;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
+@Slf4j
 @Service
 public class UserTokenService {
 
     private final UserTokenRepository userTokenRepository;
+    private final VerifiedTokenCache verifiedTokenCache;
+    private final TokenRevocationIndex revocationIndex;
+    private final AccessTokenDenyList denyList;
+    private final JwtUtil jwtUtil;
+    private final TokenCleanupProperties cleanupProperties;
+    private final TransactionTemplate transactionTemplate;
+    private final TokenWriteBehind writeBehind;
 
-    public UserTokenService(UserTokenRepository userTokenRepository) {
+    public UserTokenService(UserTokenRepository userTokenRepository,
+                            VerifiedTokenCache verifiedTokenCache,
+                            TokenRevocationIndex revocationIndex,
+                            AccessTokenDenyList denyList,
+                            JwtUtil jwtUtil,
+                            TokenCleanupProperties cleanupProperties,
+                            PlatformTransactionManager transactionManager,
+                            TokenWriteBehind writeBehind) {
         this.userTokenRepository = userTokenRepository;
+        this.verifiedTokenCache = verifiedTokenCache;
+        this.revocationIndex = revocationIndex;
+        this.denyList = denyList;
+        this.jwtUtil = jwtUtil;
+        this.cleanupProperties = cleanupProperties;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.writeBehind = writeBehind;
     }
 
     /**
      * Проверяет, действителен ли токен: не отозван, не просрочен.
+     * Если индекс отозванных токенов построен, ответ берётся из него без запроса в базу;
+     * срок жизни в этом случае гарантирует exp токена, поэтому подпись и exp
+     * должны быть проверены вызывающим кодом (JwtUtil#verify).
+     * Токен, который ещё ждёт отложенной записи, проверяется по очереди в памяти.
+     * Запрос в базу всегда идёт в основную базу: на реплике отзыв (logout) может быть ещё не виден,
+     * а refresh выполняется без аутентификации, и окно read-your-writes его не покрывает.
      *
      * @param token             JWT токен
      * @param expirationMinutes Время жизни токена в минутах
      * @return true, если токен существует, не отозван и не просрочен
      */
-    @Transactional
     public boolean isTokenValid(String token, long expirationMinutes) {
-        return userTokenRepository.findByToken(token)
+        byte[] tokenHash = TokenHashes.sha256(token);
+        switch (revocationIndex.check(tokenHash)) {
+            case REVOKED:
+                return false;
+            case NOT_REVOKED:
+                return true;
+            default:
+                break;
+        }
+        switch (writeBehind.check(tokenHash)) {
+            case REVOKED:
+                return false;
+            case PENDING:
+                return true;
+            default:
+                break;
+        }
+        Optional<UserToken> stored = ReadWriteRoutingDataSource.onPrimary(() -> userTokenRepository.findByTokenHash(tokenHash));
+        return stored
                 .filter(userToken -> !userToken.isRevoked())
                 .filter(userToken -> LocalDateTime.now().isBefore(userToken.getCreatedAt().plusMinutes(expirationMinutes)))
                 .isPresent();
     }
 
     /**
-     * Удаляет все истёкшие токены определённого типа (например, только REFRESH).
+     * Удаляет истёкшие токены определённого типа (например, только REFRESH) порциями
+     * по token-cleanup.chunk-size строк, каждая порция в своей транзакции.
+     * Останавливается, когда удалять больше нечего или исчерпан token-cleanup.time-budget;
+     * остаток удалит следующий запуск.
      *
      * @param expirationMinutes Время жизни токена
      * @param tokenType         Тип токена (например, REFRESH)
+     * @return количество удалённых токенов
      */
-    @Transactional
-    public void removeExpiredTokens(long expirationMinutes, TokenType tokenType) {
+    public int removeExpiredTokens(long expirationMinutes, TokenType tokenType) {
         LocalDateTime cutoff = LocalDateTime.now().minusMinutes(expirationMinutes);
-        List<UserToken> expiredTokens = userTokenRepository.findAllByTokenTypeAndCreatedAtBefore(tokenType, cutoff);
-        userTokenRepository.deleteAll(expiredTokens);
+        int chunkSize = cleanupProperties.getChunkSize();
+        long deadline = System.nanoTime() + cleanupProperties.getTimeBudget().toNanos();
+
+        int total = 0;
+        int deleted;
+        do {
+            deleted = transactionTemplate.execute(status ->
+                    userTokenRepository.deleteExpiredChunk(tokenType.name(), cutoff, chunkSize));
+            total += deleted;
+        } while (deleted == chunkSize && System.nanoTime() < deadline);
+
+        if (deleted == chunkSize) {
+            log.info("Очистка {} токенов остановлена по времени после {} строк", tokenType, total);
+        }
+        return total;
     }
 
     /**
      * Отзывает токен (не удаляет физически, только помечает как недействительный).
+     * Действующий access токен с jti дополнительно попадает в deny-list: без этого
+     * он остался бы валидным до exp, если access токены не сохраняются в базе.
      *
      * @param token JWT токен
+     * @return true, если токен найден в базе или добавлен в deny-list
      */
     @Transactional
-    public void revokeToken(String token) {
-        userTokenRepository.findByToken(token).ifPresent(userToken -> {
-            userToken.setRevoked(true);
-            userTokenRepository.save(userToken);
-        });
+    public boolean revokeToken(String token) {
+        byte[] tokenHash = TokenHashes.sha256(token);
+        // Сначала очередь отложенной записи: если токен пишется прямо сейчас, UPDATE ниже дождётся коммита
+        boolean revoked = writeBehind.revoke(tokenHash);
+        revoked |= userTokenRepository.revokeByTokenHash(tokenHash) > 0;
+        if (revoked) {
+            revocationIndex.addAfterCommit(tokenHash);
+        }
+
+        TokenVerification access = jwtUtil.verify(token, TokenType.ACCESS);
+        if (access.isValid() && access.token().jti() != null) {
+            denyList.deny(access.token().jti(), access.token().expiresAt());
+            revoked = true;
+        }
+        verifiedTokenCache.evict(token);
+        return revoked;
+    }
+
+    /**
+     * Отзывает токен и сбрасывает закэшированные access токены его владельца (logout).
+     *
+     * @param token    JWT токен
+     * @param username владелец токена
+     * @return true, если токен найден в базе
+     */
+    @Transactional
+    public boolean revokeToken(String token, String username) {
+        boolean revoked = revokeToken(token);
+        verifiedTokenCache.evictUser(username);
+        return revoked;
     }
 
     /**
-     * Отзывает все токены пользователя заданного типа (например, все REFRESH токены при logout).
+     * Отзывает все токены пользователя заданного типа (например, все REFRESH токены при logout)
+     * одним UPDATE ... RETURNING, без загрузки строк в память.
+     * При jwt.persist-access-tokens: false access токенов в базе нет, и для ACCESS это ничего не отзывает.
      *
      * @param userId    ID пользователя
      * @param tokenType Тип токена
+     * @return количество отозванных токенов
      */
     @Transactional
-    public void revokeAllTokensByUserAndType(UUID userId, TokenType tokenType) {
-        userTokenRepository.findAll().stream()
-                .filter(token -> token.getUser().getId().equals(userId))
-                .filter(token -> token.getTokenType() == tokenType)
-                .forEach(token -> {
-                    token.setRevoked(true);
-                    userTokenRepository.save(token);
-                });
+    public int revokeAllTokensByUserAndType(UUID userId, TokenType tokenType) {
+        List<byte[]> revokedHashes = new ArrayList<>(writeBehind.revokeAll(userId, tokenType));
+        revokedHashes.addAll(userTokenRepository.revokeAllByUserAndType(userId, tokenType.name()));
+        revokedHashes.forEach(revocationIndex::addAfterCommit);
+        // В кэше проверенных токенов лежат только access токены
+        if (tokenType == TokenType.ACCESS && !revokedHashes.isEmpty()) {
+            verifiedTokenCache.evictUser(userId);
+        }
+        return revokedHashes.size();
     }
 
     /**
      * Заменяет старый токен новым (например, при рефреше).
+     * Старая строка остаётся в базе отозванной, чтобы индекс отозванных токенов
+     * можно было восстановить из базы после перезапуска.
      *
      * @param oldToken старый JWT
      * @param newToken новый JWT
      */
     @Transactional
     public void replaceToken(String oldToken, String newToken) {
-        userTokenRepository.findByToken(oldToken).ifPresent(userToken -> {
-            userToken.setToken(newToken);
-            userToken.setRevoked(false);
-            userToken.setCreatedAt(LocalDateTime.now());
-            userTokenRepository.save(userToken);
+        byte[] oldTokenHash = TokenHashes.sha256(oldToken);
+        if (writeBehind.replace(oldTokenHash, TokenHashes.sha256(newToken))) {
+            revocationIndex.addAfterCommit(oldTokenHash);
+            return;
+        }
+        userTokenRepository.findByTokenHash(oldTokenHash).ifPresent(userToken -> {
+            userToken.setRevoked(true);
+            revocationIndex.addAfterCommit(userToken.getTokenHash());
+            storeNewToken(newToken, userToken.getUser(), userToken.getTokenType());
         });
     }
 
+    /**
+     * Перестраивает индекс отозванных токенов по таблице user_tokens.
+     */
+    @Transactional
+    public void rebuildRevocationIndex() {
+        if (!revocationIndex.isEnabled()) {
+            return;
+        }
+        // Запрос выполняется внутри rebuild, уже после начала сбора параллельных отзывов.
+        // Отозванные токены, которые ещё ждут отложенной записи, в базе пока не видны
+        revocationIndex.rebuild(() -> Stream.concat(
+                userTokenRepository.streamRevokedTokenHashes(), writeBehind.pendingRevokedHashes().stream()));
+    }
+
+    /**
+     * Сохраняет только что выданный токен: в текущей транзакции или, если включён
+     * token-write-behind, через очередь отложенной записи, без запроса в базу.
+     *
+     * @param token     JWT токен
+     * @param user      владелец (достаточно ссылки без загрузки)
+     * @param tokenType тип токена
+     */
+    public void storeNewToken(String token, UserApp user, TokenType tokenType) {
+        byte[] tokenHash = TokenHashes.sha256(token);
+        if (writeBehind.isEnabled()) {
+            writeBehind.enqueue(tokenHash, user.getId(), tokenType, LocalDateTime.now());
+            return;
+        }
+        userTokenRepository.save(UserToken.builder()
+                .tokenHash(tokenHash)
+                .user(user)
+                .tokenType(tokenType)
+                .revoked(false)
+                .createdAt(LocalDateTime.now())
+                .build());
+    }
+
     /**
      * Создаёт и сохраняет новый токен.
      */
@@ -0,0 +1,95 @@
+package petproekt.task_management_system.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import petproekt.task_management_system.dto.CursorPage;
+import petproekt.task_management_system.security.AuthenticatedUser;
+import petproekt.task_management_system.security.JwtUtil;
+import petproekt.task_management_system.service.TaskService;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.when;
+
+/**
+ * Выход по access токену: с jwt.persist-access-tokens=false токен отзывается через deny-list по jti
+ * и перестаёт приниматься JwtFilter до своего exp.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "jwt.persist-access-tokens=false")
+class AccessTokenLogoutTest {
+
+    @LocalServerPort
+    int port;
+
+    @Autowired
+    JwtUtil jwtUtil;
+
+    @MockitoBean
+    TaskService taskService;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private final AuthenticatedUser user = new AuthenticatedUser(UUID.randomUUID(), "logout-user", Set.of("ROLE_USER"));
+
+    @BeforeEach
+    void setUp() {
+        when(taskService.getVersion(user.id())).thenReturn(1L);
+        doReturn(new CursorPage<>(List.of(), null))
+                .when(taskService).findPage(eq(user.id()), any(), any(), anyInt(), any());
+    }
+
+    @Test
+    void accessTokenIsRejectedAfterLogout() throws Exception {
+        String accessToken = jwtUtil.generateAccessToken(user);
+        String otherToken = jwtUtil.generateAccessToken(user);
+        // Первый запрос кладёт токен в кэш проверенных токенов: выход должен сбросить и его
+        assertThat(send(tasks(accessToken))).isEqualTo(200);
+
+        assertThat(send(logout(accessToken))).isEqualTo(204);
+
+        assertThat(send(tasks(accessToken))).isIn(401, 403);
+        assertThat(send(tasks(otherToken))).isEqualTo(200);
+    }
+
+    @Test
+    void repeatedLogoutWithAccessTokenSucceeds() throws Exception {
+        String accessToken = jwtUtil.generateAccessToken(user);
+
+        assertThat(send(logout(accessToken))).isEqualTo(204);
+        assertThat(send(logout(accessToken))).isEqualTo(204);
+    }
+
+    private int send(HttpRequest request) throws IOException, InterruptedException {
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private HttpRequest tasks(String accessToken) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/tasks"))
+                .header("Authorization", "Bearer " + accessToken)
+                .header("Accept", "application/json")
+                .build();
+    }
+
+    private HttpRequest logout(String token) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/auth/logout"))
+                .header("Authorization", "Bearer " + token)
+                .POST(HttpRequest.BodyPublishers.noBody())
+                .build();
+    }
+}
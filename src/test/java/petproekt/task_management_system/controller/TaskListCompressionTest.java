@@ -0,0 +1,127 @@
+package petproekt.task_management_system.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import petproekt.task_management_system.dto.CursorPage;
+import petproekt.task_management_system.dto.TaskDto;
+import petproekt.task_management_system.security.AuthenticatedUser;
+import petproekt.task_management_system.security.JwtUtil;
+import petproekt.task_management_system.service.TaskService;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.when;
+
+/**
+ * Сжатие и ETag списка задач на настоящем Tomcat: MockMvc не проходит через его сжатие.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class TaskListCompressionTest {
+
+    private static final long VERSION = 42;
+
+    @LocalServerPort
+    int port;
+
+    @Autowired
+    JwtUtil jwtUtil;
+
+    @MockitoBean
+    TaskService taskService;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private final AuthenticatedUser user = new AuthenticatedUser(UUID.randomUUID(), "compression-user", Set.of("ROLE_USER"));
+    private String accessToken;
+
+    @BeforeEach
+    void setUp() {
+        accessToken = jwtUtil.generateAccessToken(user);
+        List<TaskDto> tasks = IntStream.range(0, 1000)
+                .mapToObj(i -> new TaskDto(UUID.randomUUID(), "Задача " + i, "Описание задачи " + i, i % 2 == 0,
+                        LocalDateTime.now(), 0))
+                .toList();
+        when(taskService.getVersion(user.id())).thenReturn(VERSION);
+        doReturn(new CursorPage<>(tasks, null))
+                .when(taskService).findPage(eq(user.id()), any(), any(), anyInt(), any());
+    }
+
+    @Test
+    void largeTaskListIsGzippedWithWeakETag() throws Exception {
+        HttpResponse<byte[]> response = get("application/json", "gzip");
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.headers().firstValue("Content-Encoding")).hasValue("gzip");
+        assertThat(response.headers().firstValue("ETag")).hasValueSatisfying(etag -> assertThat(etag).startsWith("W/\""));
+        try (GZIPInputStream body = new GZIPInputStream(new ByteArrayInputStream(response.body()))) {
+            assertThat(new String(body.readAllBytes())).startsWith("[{");
+        }
+    }
+
+    @Test
+    void eTagDiffersPerRepresentationAndMatchesOnRevalidation() throws Exception {
+        String jsonETag = get("application/json", "gzip").headers().firstValue("ETag").orElseThrow();
+        String cborETag = get("application/cbor", "gzip").headers().firstValue("ETag").orElseThrow();
+        assertThat(cborETag).isNotEqualTo(jsonETag);
+
+        HttpRequest revalidation = request("application/json", "gzip").header("If-None-Match", jsonETag).build();
+        assertThat(client.send(revalidation, HttpResponse.BodyHandlers.discarding()).statusCode()).isEqualTo(304);
+    }
+
+    @Test
+    void eTagDiffersPerPageAndQuery() throws Exception {
+        String firstPage = eTag("limit=1000");
+        String nextPage = eTag("limit=1000&cursor=" + UUID.randomUUID());
+        String filtered = eTag("limit=1000&done=true");
+        String projected = eTag("limit=1000&fields=title");
+
+        assertThat(Set.of(firstPage, nextPage, filtered, projected)).hasSize(4);
+        // Порядок параметров на ETag не влияет
+        assertThat(eTag("done=true&limit=1000")).isEqualTo(filtered);
+
+        // ETag первой страницы не даёт 304 для следующей
+        HttpRequest nextWithFirstETag = request("application/json", "gzip", "limit=1000&cursor=" + UUID.randomUUID())
+                .header("If-None-Match", firstPage)
+                .build();
+        assertThat(client.send(nextWithFirstETag, HttpResponse.BodyHandlers.discarding()).statusCode()).isEqualTo(200);
+    }
+
+    private String eTag(String query) throws IOException, InterruptedException {
+        HttpRequest request = request("application/json", "gzip", query).build();
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).headers().firstValue("ETag").orElseThrow();
+    }
+
+    private HttpResponse<byte[]> get(String accept, String acceptEncoding) throws IOException, InterruptedException {
+        return client.send(request(accept, acceptEncoding).build(), HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    private HttpRequest.Builder request(String accept, String acceptEncoding) {
+        return request(accept, acceptEncoding, "limit=1000");
+    }
+
+    private HttpRequest.Builder request(String accept, String acceptEncoding, String query) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/tasks?" + query))
+                .header("Authorization", "Bearer " + accessToken)
+                .header("Accept", accept)
+                .header("Accept-Encoding", acceptEncoding);
+    }
+}
@@ -0,0 +1,123 @@
+package petproekt.task_management_system.datasource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.annotation.AnnotationTransactionAttributeSource;
+import org.springframework.transaction.interceptor.TransactionAttribute;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import petproekt.task_management_system.dto.TaskFilter;
+import petproekt.task_management_system.security.AuthenticatedUser;
+import petproekt.task_management_system.service.CustomUserDetailsService;
+import petproekt.task_management_system.service.TaskService;
+
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Stream;
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class ReadWriteRoutingDataSourceTest {
+
+    private final ReadYourWritesTracker readYourWrites = new ReadYourWritesTracker(Duration.ofSeconds(5), 100);
+    private final ReadWriteRoutingDataSource routing = routing(readYourWrites);
+    private final AuthenticatedUser user = new AuthenticatedUser(UUID.randomUUID(), "reader", Set.of("ROLE_USER"));
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void readOnlyTransactionsAlternateBetweenReplicas() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertThat(Stream.generate(routing::determineCurrentLookupKey).limit(4))
+                .containsExactly("replica-1", "replica-2", "replica-1", "replica-2");
+    }
+
+    @Test
+    void writeTransactionGoesToPrimary() {
+        assertThat(routing.determineCurrentLookupKey()).isEqualTo("primary");
+    }
+
+    @Test
+    void onPrimaryOverridesReadOnly() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertThat(ReadWriteRoutingDataSource.onPrimary(routing::determineCurrentLookupKey)).isEqualTo("primary");
+        assertThat(routing.determineCurrentLookupKey()).isEqualTo("replica-1");
+    }
+
+    @Test
+    void readsOfRecentWriterGoToPrimaryAfterCommit() {
+        authenticate();
+        TransactionSynchronizationManager.initSynchronization();
+        routing.determineCurrentLookupKey();
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        // До коммита записи окно ещё не открыто
+        assertThat(routing.determineCurrentLookupKey()).isEqualTo("replica-1");
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        assertThat(routing.determineCurrentLookupKey()).isEqualTo("primary");
+    }
+
+    @Test
+    void readsOfOtherUsersStillGoToReplica() {
+        readYourWrites.recordWrite(UUID.randomUUID());
+        authenticate();
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertThat(routing.determineCurrentLookupKey()).isEqualTo("replica-1");
+    }
+
+    /**
+     * Методы чтения, за которыми стоят GET эндпоинты: без readOnly = true они уходят в основную базу.
+     */
+    @ParameterizedTest
+    @MethodSource("replicaReads")
+    void readEndpointsUseReadOnlyTransactions(Method method) {
+        TransactionAttribute attribute = new AnnotationTransactionAttributeSource()
+                .getTransactionAttribute(method, method.getDeclaringClass());
+
+        assertThat(attribute).isNotNull();
+        assertThat(attribute.isReadOnly()).isTrue();
+    }
+
+    static Stream<Method> replicaReads() throws NoSuchMethodException {
+        return Stream.of(
+                CustomUserDetailsService.class.getMethod("findById", UUID.class),
+                TaskService.class.getMethod("findPage", UUID.class, TaskFilter.class, String.class, int.class, Set.class),
+                TaskService.class.getMethod("getStats", UUID.class),
+                TaskService.class.getMethod("getVersion", UUID.class),
+                TaskService.class.getMethod("search", UUID.class, String.class, String.class, int.class),
+                TaskService.class.getMethod("streamTasks", UUID.class, Set.class, OutputStream.class));
+    }
+
+    private void authenticate() {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(user, null, user.authorities()));
+    }
+
+    private static ReadWriteRoutingDataSource routing(ReadYourWritesTracker readYourWrites) {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        replicas.put("replica-1", mock(DataSource.class));
+        replicas.put("replica-2", mock(DataSource.class));
+        return new ReadWriteRoutingDataSource(mock(DataSource.class), replicas, readYourWrites);
+    }
+}
@@ -0,0 +1,68 @@
+package petproekt.task_management_system.dto;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.junit.jupiter.params.provider.ValueSource;
+import petproekt.task_management_system.enm.TaskSort;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TaskCursorTest {
+
+    private static final UUID ID = UUID.fromString("3f2c1a6e-8d4b-4c2a-9f1e-7b6a5d4c3b2a");
+
+    @Test
+    void idCursorIsPlainId() {
+        TaskCursor cursor = new TaskCursor(null, ID);
+
+        assertThat(cursor.encode()).isEqualTo(ID.toString());
+        assertThat(TaskCursor.decode(cursor.encode(), TaskSort.ID)).isEqualTo(cursor);
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = TaskSort.class, names = {"CREATED_AT", "CREATED_AT_DESC"})
+    void createdAtCursorRoundTrips(TaskSort sort) {
+        TaskCursor cursor = new TaskCursor(LocalDateTime.of(2024, 2, 29, 23, 59, 59, 123_456_000), ID);
+
+        String encoded = cursor.encode();
+
+        assertThat(encoded).doesNotContain("+", "/", "=", "|");
+        assertThat(TaskCursor.decode(encoded, sort)).isEqualTo(cursor);
+    }
+
+    @Test
+    void createdAtCursorKeepsWholeSeconds() {
+        TaskCursor cursor = new TaskCursor(LocalDateTime.of(2024, 1, 1, 0, 0), ID);
+
+        assertThat(TaskCursor.decode(cursor.encode(), TaskSort.CREATED_AT)).isEqualTo(cursor);
+    }
+
+    @ParameterizedTest
+    @EnumSource(TaskSort.class)
+    void missingCursorMeansFirstPage(TaskSort sort) {
+        assertThat(TaskCursor.decode(null, sort)).isNull();
+        assertThat(TaskCursor.decode(" ", sort)).isNull();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"not-a-cursor", "%%%", "MjAyNC0wMS0wMVQwMDowMA"})
+    void rejectsMalformedCreatedAtCursor(String cursor) {
+        assertThatThrownBy(() -> TaskCursor.decode(cursor, TaskSort.CREATED_AT))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void rejectsCursorIssuedForOtherSort() {
+        String byCreatedAt = new TaskCursor(LocalDateTime.of(2024, 1, 1, 12, 0), ID).encode();
+
+        assertThatThrownBy(() -> TaskCursor.decode(byCreatedAt, TaskSort.ID))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> TaskCursor.decode(ID.toString(), TaskSort.CREATED_AT))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,61 @@
+package petproekt.task_management_system.security;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import petproekt.task_management_system.dao.DeniedAccessTokenRepository;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class AccessTokenDenyListTest {
+
+    private final AccessTokenDenyList denyList = new AccessTokenDenyList(mock(DeniedAccessTokenRepository.class));
+    private final Instant expiresAt = Instant.now().plusSeconds(600);
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void deniesOnlyAfterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        denyList.deny("jti", expiresAt);
+
+        assertThat(denyList.isDenied("jti")).isFalse();
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        assertThat(denyList.isDenied("jti")).isTrue();
+    }
+
+    @Test
+    void rollbackLeavesTokenAllowed() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        denyList.deny("jti", expiresAt);
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        assertThat(denyList.isDenied("jti")).isFalse();
+    }
+
+    @Test
+    void deniesImmediatelyWithoutTransaction() {
+        denyList.deny("jti", expiresAt);
+
+        assertThat(denyList.isDenied("jti")).isTrue();
+    }
+
+    @Test
+    void ignoresExpiredToken() {
+        denyList.deny("jti", Instant.now().minusSeconds(1));
+
+        assertThat(denyList.isDenied("jti")).isFalse();
+    }
+}
@@ -0,0 +1,39 @@
+package petproekt.task_management_system.security;
+
+import org.junit.jupiter.api.Test;
+import petproekt.task_management_system.config.PasswordHashingProperties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BCryptWorkFactorTest {
+
+    private static final String SALT_AND_HASH = "abcdefghijklmnopqrstuv0123456789ABCDEFGHIJKLMNOPQRS";
+
+    @Test
+    void rehashesOnlyCheaperHashes() {
+        BCryptWorkFactor workFactor = pinned(12);
+
+        assertThat(workFactor.needsRehash("$2a$10$" + SALT_AND_HASH)).isTrue();
+        assertThat(workFactor.needsRehash("$2a$12$" + SALT_AND_HASH)).isFalse();
+        assertThat(workFactor.needsRehash("$2b$14$" + SALT_AND_HASH)).isFalse();
+    }
+
+    @Test
+    void pinnedStrengthSkipsCalibration() {
+        assertThat(pinned(11).strength()).isEqualTo(11);
+    }
+
+    @Test
+    void readsCostFromHash() {
+        assertThat(BCryptWorkFactor.costOf("$2y$13$" + SALT_AND_HASH)).isEqualTo(13);
+        assertThat(BCryptWorkFactor.costOf("plain")).isEqualTo(-1);
+        assertThat(BCryptWorkFactor.costOf(null)).isEqualTo(-1);
+    }
+
+    private static BCryptWorkFactor pinned(int strength) {
+        PasswordHashingProperties properties = new PasswordHashingProperties();
+        properties.setCalibrate(false);
+        properties.setStrength(strength);
+        return new BCryptWorkFactor(properties);
+    }
+}
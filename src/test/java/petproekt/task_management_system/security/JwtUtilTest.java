@@ -0,0 +1,157 @@
+package petproekt.task_management_system.security;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import petproekt.task_management_system.config.JwtProperties;
+import petproekt.task_management_system.enm.TokenType;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Date;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JwtUtilTest {
+
+    private static final String ACCESS_SECRET = "test-access-token-secret-0123456789abcdef0123456789abcdef";
+    private static final String REFRESH_SECRET = "test-refresh-token-secret-0123456789abcdef0123456789abcdef";
+
+    private final JwtUtil jwtUtil = new JwtUtil(properties(3_600_000), new SimpleMeterRegistry());
+    private final AuthenticatedUser user = new AuthenticatedUser(UUID.randomUUID(), "user", Set.of("ROLE_USER"));
+
+    @Test
+    void acceptsValidToken() {
+        String token = jwtUtil.generateAccessToken(user);
+
+        TokenVerification verification = jwtUtil.verify(token, TokenType.ACCESS);
+
+        assertThat(verification.status()).isEqualTo(TokenVerification.Status.VALID);
+        assertThat(verification.token().subject()).isEqualTo("user");
+        assertThat(verification.token().type()).isEqualTo(TokenType.ACCESS);
+        assertThat(verification.token().userId()).isEqualTo(user.id());
+        assertThat(verification.token().roles()).containsExactly("ROLE_USER");
+        assertThat(verification.token().jti()).isNotNull();
+        assertThat(verification.token().expiresAt()).isAfter(Instant.now());
+    }
+
+    @Test
+    void acceptsValidRefreshToken() {
+        String token = jwtUtil.generateToken("user", TokenType.REFRESH);
+
+        assertThat(jwtUtil.verify(token, TokenType.REFRESH).status()).isEqualTo(TokenVerification.Status.VALID);
+    }
+
+    @Test
+    void rejectsTamperedSignature() {
+        String token = jwtUtil.generateAccessToken(user);
+        char last = token.charAt(token.length() - 1);
+        String tampered = token.substring(0, token.length() - 1) + (last == 'A' ? 'B' : 'A');
+
+        assertThat(jwtUtil.verify(tampered, TokenType.ACCESS).status())
+                .isEqualTo(TokenVerification.Status.INVALID_SIGNATURE);
+    }
+
+    @Test
+    void rejectsTamperedPayload() {
+        String[] parts = jwtUtil.generateAccessToken(user).split("\\.");
+        String payload = new String(Base64.getUrlDecoder().decode(parts[1]), StandardCharsets.UTF_8)
+                .replace("\"sub\":\"user\"", "\"sub\":\"admin\"");
+        String tampered = parts[0] + "." + base64Url(payload) + "." + parts[2];
+
+        assertThat(jwtUtil.verify(tampered, TokenType.ACCESS).status())
+                .isEqualTo(TokenVerification.Status.INVALID_SIGNATURE);
+    }
+
+    @Test
+    void rejectsWrongTokenType() {
+        // Подписан ключом access токенов, но в claim type указан refresh
+        String token = Jwts.builder()
+                .setSubject("user")
+                .setExpiration(new Date(System.currentTimeMillis() + 60_000))
+                .claim("type", TokenType.REFRESH.name())
+                .signWith(Keys.hmacShaKeyFor(ACCESS_SECRET.getBytes(StandardCharsets.UTF_8)), SignatureAlgorithm.HS256)
+                .compact();
+
+        TokenVerification verification = jwtUtil.verify(token, TokenType.ACCESS);
+
+        assertThat(verification.status()).isEqualTo(TokenVerification.Status.WRONG_TYPE);
+        assertThat(verification.token()).isNull();
+    }
+
+    @Test
+    void reportsExpiredTokenWithClaims() {
+        JwtUtil expiring = new JwtUtil(properties(-60_000), new SimpleMeterRegistry());
+        String token = expiring.generateAccessToken(user);
+
+        TokenVerification verification = expiring.verify(token, TokenType.ACCESS);
+
+        assertThat(verification.status()).isEqualTo(TokenVerification.Status.EXPIRED);
+        assertThat(verification.isValid()).isFalse();
+        assertThat(verification.token().subject()).isEqualTo("user");
+        assertThat(verification.token().expiresAt()).isBefore(Instant.now());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "abc", "a.b", "a.b.c.d", ".b.c", "a..c", "a.b.", "..", "..."})
+    void rejectsMalformedStructure(String token) {
+        assertThat(jwtUtil.verify(token, TokenType.ACCESS).status())
+                .isEqualTo(TokenVerification.Status.MALFORMED);
+    }
+
+    @Test
+    void rejectsNull() {
+        assertThat(jwtUtil.verify(null, TokenType.ACCESS).status()).isEqualTo(TokenVerification.Status.MALFORMED);
+    }
+
+    @Test
+    void rejectsExtraSegmentAfterValidToken() {
+        String token = jwtUtil.generateAccessToken(user) + ".extra";
+
+        assertThat(jwtUtil.verify(token, TokenType.ACCESS).status())
+                .isEqualTo(TokenVerification.Status.MALFORMED);
+    }
+
+    @Test
+    void rejectsAlgNone() {
+        String[] parts = jwtUtil.generateAccessToken(user).split("\\.");
+        String noneHeader = base64Url("{\"alg\":\"none\"}");
+
+        // Без подписи, как в настоящем alg=none токене
+        assertThat(jwtUtil.verify(noneHeader + "." + parts[1] + ".", TokenType.ACCESS).isValid()).isFalse();
+        // С подписью исходного токена: заголовок входит в подписываемые данные
+        assertThat(jwtUtil.verify(noneHeader + "." + parts[1] + "." + parts[2], TokenType.ACCESS).status())
+                .isEqualTo(TokenVerification.Status.INVALID_SIGNATURE);
+    }
+
+    @Test
+    void rejectsTokenSignedWithOtherKey() {
+        String refreshToken = jwtUtil.generateToken("user", TokenType.REFRESH);
+        String accessToken = jwtUtil.generateAccessToken(user);
+
+        assertThat(jwtUtil.verify(refreshToken, TokenType.ACCESS).status())
+                .isEqualTo(TokenVerification.Status.INVALID_SIGNATURE);
+        assertThat(jwtUtil.verify(accessToken, TokenType.REFRESH).status())
+                .isEqualTo(TokenVerification.Status.INVALID_SIGNATURE);
+    }
+
+    private static JwtProperties properties(long accessTokenExpiration) {
+        JwtProperties properties = new JwtProperties();
+        properties.setAccessTokenSecret(ACCESS_SECRET);
+        properties.setRefreshTokenSecret(REFRESH_SECRET);
+        properties.setAccessTokenExpiration(accessTokenExpiration);
+        properties.setRefreshTokenExpiration(604_800_000);
+        return properties;
+    }
+
+    private static String base64Url(String json) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,169 @@
+package petproekt.task_management_system.security;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import petproekt.task_management_system.enm.TokenType;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenJournalTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void replaysTokenAndRevokeRecordsInOrder() throws IOException {
+        UUID id = UUID.randomUUID();
+        UUID userId = UUID.randomUUID();
+        byte[] tokenHash = TokenHashes.sha256("token");
+        byte[] revokedHash = TokenHashes.sha256("revoked");
+        LocalDateTime createdAt = LocalDateTime.of(2024, 5, 1, 12, 30, 15, 123_456_789);
+        try (TokenJournal journal = new TokenJournal(dir, 100, true)) {
+            journal.appendToken(id, tokenHash, userId, TokenType.REFRESH, createdAt);
+            journal.appendRevoke(revokedHash);
+        }
+
+        List<TokenJournal.Entry> entries = new TokenJournal(dir, 100, true).replay();
+
+        assertThat(entries).hasSize(2);
+        TokenJournal.Entry token = entries.get(0);
+        assertThat(token.kind()).isEqualTo(TokenJournal.TOKEN);
+        assertThat(token.tokenHash()).isEqualTo(tokenHash);
+        assertThat(token.id()).isEqualTo(id);
+        assertThat(token.userId()).isEqualTo(userId);
+        assertThat(token.tokenType()).isEqualTo(TokenType.REFRESH);
+        assertThat(token.createdAt()).isEqualTo(createdAt);
+        TokenJournal.Entry revoke = entries.get(1);
+        assertThat(revoke.kind()).isEqualTo(TokenJournal.REVOKE);
+        assertThat(revoke.tokenHash()).isEqualTo(revokedHash);
+    }
+
+    @Test
+    void dropsTornRecordAtSegmentEnd() throws IOException {
+        appendTokens(3);
+        Path segment = segments().get(0);
+        long recordSize = Files.size(segment) / 3;
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(2 * recordSize + recordSize / 2);
+        }
+
+        assertThat(new TokenJournal(dir, 100, false).replay()).hasSize(2);
+    }
+
+    @Test
+    void dropsRestOfSegmentAfterChecksumMismatch() throws IOException {
+        appendTokens(3);
+        Path segment = segments().get(0);
+        long recordSize = Files.size(segment) / 3;
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer oneByte = ByteBuffer.allocate(1);
+            channel.read(oneByte, recordSize + 5);
+            oneByte.flip();
+            byte flipped = (byte) (oneByte.get() ^ 0xFF);
+            channel.write(ByteBuffer.wrap(new byte[]{flipped}), recordSize + 5);
+        }
+
+        assertThat(new TokenJournal(dir, 100, false).replay()).hasSize(1);
+    }
+
+    @Test
+    void releasesSegmentsOnlyFromHead() throws IOException {
+        TokenJournal journal = new TokenJournal(dir, 2, false);
+        long first = journal.appendToken(UUID.randomUUID(), TokenHashes.sha256("a"), UUID.randomUUID(), TokenType.ACCESS, LocalDateTime.now());
+        journal.appendToken(UUID.randomUUID(), TokenHashes.sha256("b"), UUID.randomUUID(), TokenType.ACCESS, LocalDateTime.now());
+        long second = journal.appendToken(UUID.randomUUID(), TokenHashes.sha256("c"), UUID.randomUUID(), TokenType.ACCESS, LocalDateTime.now());
+        journal.appendToken(UUID.randomUUID(), TokenHashes.sha256("d"), UUID.randomUUID(), TokenType.ACCESS, LocalDateTime.now());
+        long third = journal.appendToken(UUID.randomUUID(), TokenHashes.sha256("e"), UUID.randomUUID(), TokenType.ACCESS, LocalDateTime.now());
+        assertThat(segments()).hasSize(3);
+
+        // Второй сегмент записан в базу раньше первого: удалять его ещё нельзя
+        journal.release(second, 2);
+        assertThat(segments()).hasSize(3);
+
+        journal.release(first, 2);
+        assertThat(segments()).hasSize(1);
+        assertThat(journal.segmentCount()).isEqualTo(1);
+
+        // Текущий сегмент не удаляется, пока в него пишут
+        journal.release(third, 1);
+        assertThat(segments()).hasSize(1);
+
+        journal.close();
+        assertThat(segments()).isEmpty();
+    }
+
+    @Test
+    void keepsRevokeUntilEarlierTokenSegmentIsReleased() throws IOException {
+        byte[] tokenHash = TokenHashes.sha256("token");
+        TokenJournal journal = new TokenJournal(dir, 1, false);
+        journal.appendToken(UUID.randomUUID(), tokenHash, UUID.randomUUID(), TokenType.REFRESH, LocalDateTime.now());
+        journal.appendRevoke(tokenHash);
+        long laterSegment = journal.appendToken(UUID.randomUUID(), TokenHashes.sha256("later"), UUID.randomUUID(), TokenType.REFRESH, LocalDateTime.now());
+
+        journal.release(laterSegment, 1);
+        journal.close();
+
+        List<TokenJournal.Entry> entries = new TokenJournal(dir, 1, false).replay();
+        assertThat(entries).extracting(TokenJournal.Entry::kind)
+                .containsExactly(TokenJournal.TOKEN, TokenJournal.REVOKE, TokenJournal.TOKEN);
+    }
+
+    @Test
+    void concurrentAppendsWithFsyncAreAllDurable() throws Exception {
+        int threads = 8;
+        int perThread = 200;
+        TokenJournal journal = new TokenJournal(dir, 64, true);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        journal.appendToken(UUID.randomUUID(), TokenHashes.sha256(thread + "-" + i),
+                                UUID.randomUUID(), TokenType.ACCESS, LocalDateTime.now());
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        journal.close();
+
+        assertThat(new TokenJournal(dir, 64, true).replay()).hasSize(threads * perThread);
+    }
+
+    private void appendTokens(int count) throws IOException {
+        try (TokenJournal journal = new TokenJournal(dir, 100, false)) {
+            for (int i = 0; i < count; i++) {
+                journal.appendToken(UUID.randomUUID(), TokenHashes.sha256("token-" + i), UUID.randomUUID(),
+                        TokenType.ACCESS, LocalDateTime.now());
+            }
+        }
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.sorted().toList();
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package petproekt.task_management_system.security;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import petproekt.task_management_system.config.RevocationIndexProperties;
+import petproekt.task_management_system.security.TokenRevocationIndex.Status;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenRevocationIndexTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void revocationCommittedWhileRebuildQueryRunsIsKept() {
+        TokenRevocationIndex index = new TokenRevocationIndex(properties(16, true));
+        byte[] inSnapshot = hash("in-snapshot");
+        byte[] afterSnapshot = hash("after-snapshot");
+
+        // Отзыв приходит между началом перестроения и снимком запроса: в снимок он не попал
+        index.rebuild(() -> {
+            index.addAfterCommit(afterSnapshot);
+            return Stream.of(inSnapshot);
+        });
+
+        assertThat(index.requiresRebuild()).isFalse();
+        assertThat(index.check(inSnapshot)).isEqualTo(Status.REVOKED);
+        assertThat(index.check(afterSnapshot)).isEqualTo(Status.REVOKED);
+    }
+
+    @Test
+    void revocationDuringRebuildOfBuiltIndexIsKept() {
+        TokenRevocationIndex index = new TokenRevocationIndex(properties(16, true));
+        byte[] old = hash("old");
+        index.rebuild(() -> Stream.of(old));
+        byte[] concurrent = hash("concurrent");
+
+        index.rebuild(() -> Stream.of(old).onClose(() -> index.addAfterCommit(concurrent)));
+
+        assertThat(index.check(old)).isEqualTo(Status.REVOKED);
+        assertThat(index.check(concurrent)).isEqualTo(Status.REVOKED);
+    }
+
+    @Test
+    void revocationsAddedConcurrentlyWithInitialBuildAreKept() throws Exception {
+        TokenRevocationIndex index = new TokenRevocationIndex(properties(16, true));
+
+        List<byte[]> added = addWhileRebuilding(index, 1);
+
+        assertThat(added).allSatisfy(tokenHash -> assertThat(index.check(tokenHash)).isEqualTo(Status.REVOKED));
+    }
+
+    @Test
+    void revocationsAddedConcurrentlyWithRepeatedRebuildsAreKept() throws Exception {
+        TokenRevocationIndex index = new TokenRevocationIndex(properties(16, true));
+        index.rebuild(Stream::empty);
+
+        List<byte[]> added = addWhileRebuilding(index, 20);
+
+        assertThat(added).allSatisfy(tokenHash -> assertThat(index.check(tokenHash)).isEqualTo(Status.REVOKED));
+    }
+
+    @Test
+    void growsPastLoadFactor() throws Exception {
+        RevocationIndexProperties properties = properties(4, true);
+        TokenRevocationIndex index = new TokenRevocationIndex(properties);
+        index.rebuild(Stream::empty);
+        long initialLength = Files.size(properties.getFile());
+
+        List<byte[]> added = new ArrayList<>();
+        IntStream.range(0, 1000).forEach(i -> {
+            byte[] tokenHash = hash("token-" + i);
+            added.add(tokenHash);
+            index.addAfterCommit(tokenHash);
+        });
+
+        assertThat(Files.size(properties.getFile())).isGreaterThan(initialLength);
+        assertThat(added).allSatisfy(tokenHash -> assertThat(index.check(tokenHash)).isEqualTo(Status.REVOKED));
+        // Хэш-таблица точная: ложных срабатываний после проверки фильтра нет
+        IntStream.range(0, 1000).forEach(i ->
+                assertThat(index.check(hash("other-" + i))).isEqualTo(Status.NOT_REVOKED));
+    }
+
+    @Test
+    void reloadsFromFileWithoutRebuild() {
+        byte[] fromRebuild = hash("from-rebuild");
+        byte[] addedLater = hash("added-later");
+        TokenRevocationIndex first = new TokenRevocationIndex(properties(16, true));
+        first.rebuild(() -> Stream.of(fromRebuild));
+        first.addAfterCommit(addedLater);
+        first.destroy();
+
+        TokenRevocationIndex reloaded = new TokenRevocationIndex(properties(16, false));
+
+        assertThat(reloaded.requiresRebuild()).isFalse();
+        assertThat(reloaded.check(fromRebuild)).isEqualTo(Status.REVOKED);
+        assertThat(reloaded.check(addedLater)).isEqualTo(Status.REVOKED);
+        assertThat(reloaded.check(hash("unknown"))).isEqualTo(Status.NOT_REVOKED);
+    }
+
+    @Test
+    void fileNotClosedCleanlyRequiresRebuild() {
+        TokenRevocationIndex crashed = new TokenRevocationIndex(properties(16, true));
+        crashed.rebuild(() -> Stream.of(hash("from-rebuild")));
+        crashed.addAfterCommit(hash("not-forced"));
+        // destroy() не вызывается: процесс упал
+
+        TokenRevocationIndex restarted = new TokenRevocationIndex(properties(16, false));
+
+        assertThat(restarted.requiresRebuild()).isTrue();
+        assertThat(restarted.check(hash("not-forced"))).isEqualTo(Status.UNKNOWN);
+    }
+
+    @Test
+    void reloadedFileIsNotReusedAfterSecondCrash() {
+        TokenRevocationIndex first = new TokenRevocationIndex(properties(16, true));
+        first.rebuild(() -> Stream.of(hash("from-rebuild")));
+        first.destroy();
+        TokenRevocationIndex reloaded = new TokenRevocationIndex(properties(16, false));
+        assertThat(reloaded.requiresRebuild()).isFalse();
+        reloaded.addAfterCommit(hash("after-reload"));
+        // Второй запуск тоже падает, не вызвав destroy()
+
+        TokenRevocationIndex restarted = new TokenRevocationIndex(properties(16, false));
+
+        assertThat(restarted.requiresRebuild()).isTrue();
+    }
+
+    @Test
+    void destroyedIndexStopsAnswering() {
+        TokenRevocationIndex index = new TokenRevocationIndex(properties(16, true));
+        index.rebuild(() -> Stream.of(hash("revoked")));
+
+        index.destroy();
+
+        assertThat(index.check(hash("revoked"))).isEqualTo(Status.UNKNOWN);
+    }
+
+    @Test
+    void corruptedFileRequiresRebuild() throws Exception {
+        RevocationIndexProperties properties = properties(16, false);
+        Files.write(properties.getFile(), new byte[128]);
+
+        TokenRevocationIndex index = new TokenRevocationIndex(properties);
+
+        assertThat(index.requiresRebuild()).isTrue();
+        assertThat(index.check(hash("any"))).isEqualTo(Status.UNKNOWN);
+    }
+
+    /**
+     * Отзывает токены из нескольких потоков, пока идут перестроения. Очередь {@code committed} играет
+     * роль базы: отзыв попадает в неё до вызова addAfterCommit, как коммит до afterCommit, а источник
+     * перестроения видит только то, что было в ней на момент снимка.
+     *
+     * @return все отозванные во время перестроений хэши
+     */
+    private static List<byte[]> addWhileRebuilding(TokenRevocationIndex index, int rebuilds) throws Exception {
+        int threads = 4;
+        int perThread = 2_000;
+        ConcurrentLinkedQueue<byte[]> committed = new ConcurrentLinkedQueue<>();
+        ExecutorService executor = Executors.newFixedThreadPool(threads + 1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        byte[] tokenHash = hash("concurrent-" + thread + "-" + i);
+                        committed.add(tokenHash);
+                        index.addAfterCommit(tokenHash);
+                    }
+                }));
+            }
+            futures.add(executor.submit(() -> {
+                for (int r = 0; r < rebuilds; r++) {
+                    index.rebuild(() -> Stream.concat(
+                            IntStream.range(0, 5_000).mapToObj(i -> hash("stored-" + i)),
+                            List.copyOf(committed).stream()));
+                }
+            }));
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        return new ArrayList<>(committed);
+    }
+
+    private RevocationIndexProperties properties(int expectedEntries, boolean rebuildOnStartup) {
+        RevocationIndexProperties properties = new RevocationIndexProperties();
+        properties.setEnabled(true);
+        properties.setFile(dir.resolve("revocation-index.bin"));
+        properties.setExpectedEntries(expectedEntries);
+        properties.setRebuildOnStartup(rebuildOnStartup);
+        return properties;
+    }
+
+    private static byte[] hash(String token) {
+        return TokenHashes.sha256(token);
+    }
+}
@@ -0,0 +1,181 @@
+package petproekt.task_management_system.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import petproekt.task_management_system.config.TokenWriteBehindProperties;
+import petproekt.task_management_system.enm.TokenType;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class TokenWriteBehindTest {
+
+    private static final int BATCH_SIZE = 500;
+
+    @TempDir
+    Path dir;
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final TokenRevocationIndex revocationIndex = mock(TokenRevocationIndex.class);
+
+    @Test
+    void replaysJournalBeforeAcceptingTokens() throws Exception {
+        byte[] pendingHash = TokenHashes.sha256("pending");
+        byte[] revokedPendingHash = TokenHashes.sha256("revoked-pending");
+        byte[] revokedStoredHash = TokenHashes.sha256("revoked-stored");
+        try (TokenJournal journal = new TokenJournal(dir, 100, false)) {
+            journal.appendToken(UUID.randomUUID(), pendingHash, UUID.randomUUID(), TokenType.REFRESH, LocalDateTime.now());
+            journal.appendToken(UUID.randomUUID(), revokedPendingHash, UUID.randomUUID(), TokenType.REFRESH, LocalDateTime.now());
+            journal.appendRevoke(revokedPendingHash);
+            // Токен был записан в базу до падения, в журнале остался только отзыв
+            journal.appendRevoke(revokedStoredHash);
+        }
+
+        TokenWriteBehind writeBehind = writeBehind();
+        writeBehind.start();
+        writeBehind.stop();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Object>> tokens = ArgumentCaptor.forClass(List.class);
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<ParameterizedPreparedStatementSetter<Object>> setter =
+                ArgumentCaptor.forClass(ParameterizedPreparedStatementSetter.class);
+        verify(jdbcTemplate).batchUpdate(startsWith("INSERT"), tokens.capture(), eq(2), setter.capture());
+        assertThat(tokens.getValue()).hasSize(2);
+        PreparedStatement pending = bind(setter.getValue(), tokens.getValue().get(0));
+        verify(pending).setBytes(2, pendingHash);
+        verify(pending).setBoolean(5, false);
+        PreparedStatement revokedPending = bind(setter.getValue(), tokens.getValue().get(1));
+        verify(revokedPending).setBytes(2, revokedPendingHash);
+        verify(revokedPending).setBoolean(5, true);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<byte[]>> revokes = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(startsWith("UPDATE"), revokes.capture(), eq(BATCH_SIZE), any());
+        assertThat(revokes.getValue()).containsExactly(revokedStoredHash);
+
+        verify(revocationIndex).addAfterCommit(revokedPendingHash);
+        verify(revocationIndex).addAfterCommit(revokedStoredHash);
+        verify(revocationIndex, never()).addAfterCommit(pendingHash);
+        assertThat(segments()).isEmpty();
+    }
+
+    @Test
+    void writesQueuedTokenAndReleasesJournal() throws Exception {
+        byte[] tokenHash = TokenHashes.sha256("token");
+        TokenWriteBehind writeBehind = writeBehind();
+        writeBehind.start();
+
+        writeBehind.enqueue(tokenHash, UUID.randomUUID(), TokenType.REFRESH, LocalDateTime.now());
+        writeBehind.stop();
+
+        verify(jdbcTemplate).batchUpdate(startsWith("INSERT"), anyCollection(), eq(1), any());
+        assertThat(writeBehind.check(tokenHash)).isEqualTo(TokenWriteBehind.Status.UNKNOWN);
+        assertThat(segments()).isEmpty();
+    }
+
+    @Test
+    void unwrittenTokenIsReplayedAfterRestart() throws Exception {
+        byte[] tokenHash = TokenHashes.sha256("token");
+        doThrow(new DataAccessResourceFailureException("база недоступна"))
+                .when(jdbcTemplate).batchUpdate(anyString(), anyCollection(), anyInt(), any());
+        TokenWriteBehind failing = writeBehind();
+        failing.start();
+        failing.enqueue(tokenHash, UUID.randomUUID(), TokenType.REFRESH, LocalDateTime.now());
+        assertThat(failing.revoke(tokenHash)).isTrue();
+        failing.stop();
+
+        assertThat(failing.check(tokenHash)).isEqualTo(TokenWriteBehind.Status.REVOKED);
+        assertThat(segments()).isNotEmpty();
+
+        JdbcTemplate recovered = mock(JdbcTemplate.class);
+        TokenWriteBehind restarted = new TokenWriteBehind(properties(), recovered, new NoOpTransactionManager(),
+                revocationIndex, new SimpleMeterRegistry());
+        restarted.start();
+        restarted.stop();
+
+        verify(recovered).batchUpdate(startsWith("INSERT"), anyCollection(), eq(1), any());
+        verify(revocationIndex).addAfterCommit(tokenHash);
+        assertThat(segments()).isEmpty();
+    }
+
+    private TokenWriteBehind writeBehind() {
+        return new TokenWriteBehind(properties(), jdbcTemplate, new NoOpTransactionManager(), revocationIndex,
+                new SimpleMeterRegistry());
+    }
+
+    private TokenWriteBehindProperties properties() {
+        TokenWriteBehindProperties properties = new TokenWriteBehindProperties();
+        properties.setEnabled(true);
+        properties.setJournalDir(dir);
+        properties.setJournalFsync(false);
+        properties.setBatchSize(BATCH_SIZE);
+        properties.setFlushInterval(Duration.ofMillis(10));
+        properties.setRetryDelay(Duration.ofMillis(10));
+        return properties;
+    }
+
+    private static PreparedStatement bind(ParameterizedPreparedStatementSetter<Object> setter, Object token)
+            throws SQLException {
+        PreparedStatement statement = mock(PreparedStatement.class);
+        setter.setValues(statement, token);
+        return statement;
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.toList();
+        }
+    }
+
+    /**
+     * Менеджер транзакций без базы: нужен только для синхронизаций, которые writeBehind регистрирует в транзакции.
+     */
+    private static final class NoOpTransactionManager extends AbstractPlatformTransactionManager {
+
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+    }
+}